@@ -0,0 +1,49 @@
+#!/usr/bin/env bash
+# Builds an AppCDS archive for the JVM build, so class loading and verification are mostly skipped at startup.
+# The executable jar is unpacked into a plain classpath (CDS cannot archive classes from nested jars), the app is
+# started once, sent a signup and a login so the request path is loaded too, and the classes it loaded are dumped at
+# exit.
+#
+#   scripts/build-cds.sh [name] [jvm options...]
+#
+# Writes target/cds/<name>.jsa (default name: app) next to the unpacked classpath. Train with the options the app
+# will run with, e.g. `scripts/build-cds.sh app-aot -Dspring.aot.enabled=true`, and start it from target/cds:
+#
+#   cd target/cds && java -XX:SharedArchiveFile=app.jsa @classpath.args com.example.Application
+#
+# The archive is only valid for the JDK that created it and the exact same classpath.
+set -euo pipefail
+
+NAME=${1:-app}
+shift || true
+PORT=18090
+OUT=target/cds
+JAR=$(ls target/spring-boot-rest-api-*.jar | head -n 1)
+
+if [ ! -f "$OUT/classpath.args" ] || [ "$JAR" -nt "$OUT/classpath.args" ]; then
+  rm -rf "$OUT"
+  mkdir -p "$OUT/exploded"
+  (cd "$OUT/exploded" && jar xf "../../../$JAR")
+  jar cf "$OUT/application.jar" -C "$OUT/exploded/BOOT-INF/classes" .
+  mv "$OUT/exploded/BOOT-INF/lib" "$OUT/lib"
+  rm -rf "$OUT/exploded"
+  # An explicit, sorted list: CDS checks that the runtime classpath matches the one the archive was dumped with.
+  (cd "$OUT" && echo "-cp application.jar$(ls lib/*.jar | sort | sed 's/^/:/' | tr -d '\n')" > classpath.args)
+fi
+
+cd "$OUT"
+java -XX:ArchiveClassesAtExit="$NAME.jsa" "$@" @classpath.args com.example.Application \
+     --server.port=$PORT --management.server.port=$((PORT + 1)) --logging.level.root=warn > "$NAME-training.log" 2>&1 &
+pid=$!
+trap "kill $pid 2>/dev/null || true" EXIT
+BASE="http://localhost:$PORT/api/api/auth"
+until curl -sf -o /dev/null "http://localhost:$((PORT + 1))/actuator/health"; do
+  kill -0 "$pid" 2>/dev/null || { echo "Training run failed, see $OUT/$NAME-training.log" >&2; exit 1; }
+  sleep 0.2
+done
+curl -sf -o /dev/null -H 'Content-Type: application/json' \
+     -d '{"userId":"cdstraining","password":"password123","email":"cdstraining@example.com"}' "$BASE/signup"
+curl -sf -o /dev/null -H 'Content-Type: application/json' -d '{"userId":"cdstraining","password":"password123"}' "$BASE/login"
+kill "$pid"
+wait "$pid" || true
+ls -l "$NAME.jsa"
@@ -0,0 +1,85 @@
+#!/usr/bin/env bash
+# Startup comparison of the same build run as a plain JVM jar, with an AppCDS archive, with Spring AOT on top of
+# the archive, and as a GraalVM native image. Linux only (RSS is read from /proc).
+#
+#   scripts/compare-startup.sh [runs]
+#
+# For each mode the app is started [runs] times (default 5) and the medians are reported:
+#   ready   time from launch until the first successful response (the health endpoint, polled every 10 ms)
+#   login   latency of the first signup plus login after that, which still pays for lazy initialization
+#   rss     resident memory after that login
+# The native image is built, and measured, only when native-image is on the PATH (GraalVM 22.3+).
+# Per-run numbers, the build output and app logs are written to target/startup/.
+set -euo pipefail
+
+RUNS=${1:-5}
+PORT=18081
+BASE="http://localhost:${PORT}/api"
+OUT=target/startup
+
+rm -rf "$OUT"
+mkdir -p "$OUT"
+if command -v native-image > /dev/null; then
+  mvn -B -q -Pnative -DskipTests package > "$OUT/build.log"
+else
+  # Same jar as the native build, including the AOT-generated classes, without compiling the image.
+  mvn -B -q -Pnative -DskipTests -DskipNativeBuild=true package > "$OUT/build.log"
+fi
+JAR=$(ls target/spring-boot-rest-api-*.jar | head -n 1)
+scripts/build-cds.sh app > /dev/null
+scripts/build-cds.sh app-aot -Dspring.aot.enabled=true > /dev/null
+
+now_ms() { echo $(( $(date +%s%N) / 1000000 )); }
+
+measure() {
+  local mode=$1 run=$2 dir=$3
+  shift 3
+  local start ready login rss pid
+  start=$(now_ms)
+  (cd "$dir" && exec "$@" --server.port=$PORT --management.server.port=$((PORT + 1)) --logging.level.root=warn) > "$OUT/$mode-$run.log" 2>&1 &
+  pid=$!
+  until curl -sf -o /dev/null "http://localhost:$((PORT + 1))/actuator/health"; do
+    kill -0 "$pid" 2>/dev/null || { echo "$mode failed to start, see $OUT/$mode-$run.log" >&2; exit 1; }
+    sleep 0.01
+  done
+  ready=$(( $(now_ms) - start ))
+
+  start=$(now_ms)
+  curl -sf -o /dev/null -H 'Content-Type: application/json' \
+       -d '{"userId":"startup","password":"password123","email":"startup@example.com"}' "$BASE/api/auth/signup"
+  curl -sf -o /dev/null -H 'Content-Type: application/json' \
+       -d '{"userId":"startup","password":"password123"}' "$BASE/api/auth/login"
+  login=$(( $(now_ms) - start ))
+  rss=$(awk '/VmRSS/ { print int($2 / 1024) }' "/proc/$pid/status")
+
+  kill "$pid"
+  wait "$pid" 2>/dev/null || true
+  echo "$ready $login $rss" >> "$OUT/$mode.txt"
+}
+
+run() {
+  local mode=$1
+  shift
+  for run in $(seq "$RUNS"); do
+    measure "$mode" "$run" "$@"
+  done
+}
+
+run jvm . java -jar "$JAR"
+run cds target/cds java -XX:SharedArchiveFile=app.jsa @classpath.args com.example.Application
+run aot-cds target/cds java -XX:SharedArchiveFile=app-aot.jsa -Dspring.aot.enabled=true @classpath.args \
+    com.example.Application
+if [ -x target/spring-boot-rest-api ]; then
+  run native . target/spring-boot-rest-api
+fi
+
+median() { sort -n | awk '{ v[NR] = $1 } END { print v[int((NR + 1) / 2)] }'; }
+
+printf '%-8s %10s %10s %8s\n' mode ready_ms login_ms rss_mb | tee "$OUT/results.txt"
+for file in "$OUT"/*.txt; do
+  [ "$file" = "$OUT/results.txt" ] && continue
+  mode=$(basename "$file" .txt)
+  printf '%-8s %10s %10s %8s\n' "$mode" \
+      "$(cut -d' ' -f1 "$file" | median)" "$(cut -d' ' -f2 "$file" | median)" "$(cut -d' ' -f3 "$file" | median)" \
+      | tee -a "$OUT/results.txt"
+done
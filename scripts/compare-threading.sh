@@ -0,0 +1,56 @@
+#!/usr/bin/env bash
+# Side-by-side load test of platform vs virtual request threads.
+# Requires a Java 21 JDK and `hey` (https://github.com/rakyll/hey) on the PATH.
+#
+#   scripts/compare-threading.sh [concurrency] [requests]
+#
+# Results are written to target/threading/<mode>-<endpoint>.txt. UserController is mapped at /api below the /api
+# context path, hence /api/api/... .
+set -euo pipefail
+
+CONCURRENCY=${1:-200}
+REQUESTS=${2:-20000}
+PORT=18080
+BASE="http://localhost:${PORT}/api"
+OUT=target/threading
+
+mvn -B -q -Pjava21 -DskipTests package
+JAR=$(ls target/spring-boot-rest-api-*.jar | head -n 1)
+mkdir -p "$OUT"
+
+run() {
+  local mode=$1 profiles=$2
+  # Rate limiting is off so the limiter does not decide the result.
+  java -Djdk.tracePinnedThreads=short -jar "$JAR" --server.port=$PORT --management.server.port=$((PORT + 1)) \
+       --spring.profiles.active="$profiles" \
+       --auth.rate-limit.enabled=false --logging.level.root=warn \
+       --spring.jpa.show-sql=false --logging.level.org.hibernate.SQL=warn > "$OUT/$mode-app.log" 2>&1 &
+  local pid=$!
+  trap "kill $pid 2>/dev/null || true" RETURN
+  until curl -sf -o /dev/null "http://localhost:$((PORT + 1))/actuator/health"; do sleep 1; done
+
+  # Admin, since /api/users requires users:read.
+  local login='{"userId":"admin","password":"password123"}'
+  local token
+  token=$(curl -sf -H 'Content-Type: application/json' -d "$login" "$BASE/api/auth/login" | sed -E 's/.*"token":"([^"]+)".*/\1/')
+
+  hey -c "$CONCURRENCY" -n "$REQUESTS" -H "Authorization: Bearer $token" \
+      "$BASE/api/users?limit=20" > "$OUT/$mode-users.txt"
+  hey -c "$CONCURRENCY" -n "$((REQUESTS / 10))" -m POST -T application/json -d "$login" \
+      "$BASE/api/auth/login" > "$OUT/$mode-login.txt"
+
+  kill "$pid"; wait "$pid" 2>/dev/null || true
+}
+
+run platform default
+run virtual virtual-threads
+
+for endpoint in users login; do
+  echo "== /api/$endpoint"
+  for mode in platform virtual; do
+    printf '%-9s' "$mode"
+    grep -E 'Requests/sec|99% in' "$OUT/$mode-$endpoint.txt" | tr -s ' ' | tr '\n' ' '
+    echo
+  done
+done
+echo "Pinned-thread traces, if any: grep -l 'pinned' $OUT/*-app.log"
@@ -0,0 +1,81 @@
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Summarizes the authentication events in a JFR recording into per-stage latency tables. Needs only a JDK:
+ *
+ * <pre>
+ * java scripts/jfr/JfrSummary.java recording.jfr
+ * </pre>
+ */
+public class JfrSummary {
+
+    private static final String PREFIX = "com.example.auth.";
+
+    public static void main(String[] args) throws IOException {
+        if (args.length != 1) {
+            System.err.println("usage: java scripts/jfr/JfrSummary.java <recording.jfr>");
+            System.exit(2);
+        }
+        Map<String, Map<String, List<Long>>> durations = new TreeMap<>();
+        try (RecordingFile recording = new RecordingFile(Path.of(args[0]))) {
+            while (recording.hasMoreEvents()) {
+                RecordedEvent event = recording.readEvent();
+                String type = event.getEventType().getName();
+                if (!type.startsWith(PREFIX)) {
+                    continue;
+                }
+                durations.computeIfAbsent(table(event, type.substring(PREFIX.length())), k -> new TreeMap<>())
+                        .computeIfAbsent(row(event), k -> new ArrayList<>())
+                        .add(event.getDuration().toNanos());
+            }
+        }
+        if (durations.isEmpty()) {
+            System.out.println("No com.example.auth.* events; was the recording started with scripts/jfr/auth.jfc?");
+            return;
+        }
+        durations.forEach(JfrSummary::printTable);
+    }
+
+    private static String table(RecordedEvent event, String type) {
+        return switch (type) {
+            case "Request" -> event.getString("operation") + " by outcome";
+            case "Stage" -> event.getString("operation") + " by stage";
+            default -> type;
+        };
+    }
+
+    private static String row(RecordedEvent event) {
+        return event.hasField("stage") ? event.getString("stage") : event.getString("outcome");
+    }
+
+    private static void printTable(String title, Map<String, List<Long>> rows) {
+        System.out.println();
+        System.out.println(title);
+        System.out.printf("  %-20s %8s %10s %10s %10s %10s %10s%n", "", "count", "mean ms", "p50 ms", "p99 ms",
+                "max ms", "total ms");
+        rows.forEach((name, values) -> {
+            long[] sorted = values.stream().mapToLong(Long::longValue).sorted().toArray();
+            long total = Arrays.stream(sorted).sum();
+            System.out.printf("  %-20s %8d %10.3f %10.3f %10.3f %10.3f %10.1f%n", name, sorted.length,
+                    millis(total) / sorted.length, millis(percentile(sorted, 0.50)), millis(percentile(sorted, 0.99)),
+                    millis(sorted[sorted.length - 1]), millis(total));
+        });
+    }
+
+    private static long percentile(long[] sorted, double p) {
+        return sorted[(int) Math.min(sorted.length - 1, Math.ceil(p * sorted.length) - 1)];
+    }
+
+    private static double millis(long nanos) {
+        return nanos / 1_000_000.0;
+    }
+}
@@ -0,0 +1,30 @@
+package com.example.benchmark;
+
+import com.example.common.ApiException;
+import com.example.common.GlobalExceptionHandler;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Turning an {@link ApiException} into the JSON error body, as every rejected login does.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ErrorRenderingBenchmark {
+
+    private final GlobalExceptionHandler handler = new GlobalExceptionHandler(new SimpleMeterRegistry());
+    private final ObjectMapper objectMapper = Fixtures.objectMapper();
+
+    @Benchmark
+    public byte[] renderApiException() throws Exception {
+        return objectMapper.writeValueAsBytes(
+                handler.handleApiException(ApiException.unauthorized("Invalid credentials")).getBody());
+    }
+}
@@ -0,0 +1,47 @@
+package com.example.benchmark;
+
+import com.example.security.JwtKeyring;
+import com.example.security.JwtKeyringProperties;
+import com.example.security.JwtTokenProvider;
+import com.example.security.RefreshTokenRepository;
+import com.example.security.RevokedTokenRepository;
+import com.example.security.TokenRevocationService;
+import com.example.security.VerifiedTokenCache;
+import com.example.user.UserRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.mockito.Mockito;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.time.Duration;
+import java.util.Base64;
+
+/**
+ * Builds the production components outside Spring, wired the way the application context wires them.
+ */
+final class Fixtures {
+
+    private Fixtures() {
+    }
+
+    static JwtTokenProvider jwtTokenProvider(boolean verifiedCacheEnabled, boolean compactVerifierEnabled) {
+        VerifiedTokenCache cache = new VerifiedTokenCache(verifiedCacheEnabled, 10_000, Duration.ofMinutes(5));
+        JwtKeyringProperties properties = new JwtKeyringProperties();
+        properties.setActiveKeyId("bench");
+        properties.getKeys().put("bench", Base64.getEncoder().encodeToString(new byte[32]));
+        return new JwtTokenProvider(new JwtKeyring(properties, cache), cache,
+                Duration.ofMinutes(15), Duration.ofDays(14), compactVerifierEnabled);
+    }
+
+    /**
+     * Revocation checks are in-memory; the repositories are only touched by scheduled syncs, which never run here.
+     */
+    static TokenRevocationService tokenRevocationService() {
+        return new TokenRevocationService(Mockito.mock(RevokedTokenRepository.class),
+                Mockito.mock(RefreshTokenRepository.class), Mockito.mock(UserRepository.class), 100_000, 0.01);
+    }
+
+    /** Same modules and features as the ObjectMapper Spring Boot configures. */
+    static ObjectMapper objectMapper() {
+        return Jackson2ObjectMapperBuilder.json().build();
+    }
+}
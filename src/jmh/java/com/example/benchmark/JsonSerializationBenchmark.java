@@ -0,0 +1,46 @@
+package com.example.benchmark;
+
+import com.example.user.UserDto;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import org.openjdk.jmh.annotations.*;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Serializing a page of users, as returned by {@code GET /api/users}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JsonSerializationBenchmark {
+
+    @Param({"20", "100", "1000"})
+    private int users;
+
+    private ObjectWriter writer;
+    private List<UserDto.Response> page;
+
+    @Setup
+    public void setUp() {
+        ObjectMapper objectMapper = Fixtures.objectMapper();
+        writer = objectMapper.writerFor(objectMapper.getTypeFactory()
+                .constructCollectionType(List.class, UserDto.Response.class));
+        LocalDateTime now = LocalDateTime.now();
+        page = new ArrayList<>(users);
+        for (long i = 1; i <= users; i++) {
+            page.add(new UserDto.Response(i, "user" + i, "user" + i + "@example.com", now, now));
+        }
+    }
+
+    @Benchmark
+    public byte[] serializeUsers() throws Exception {
+        return writer.writeValueAsBytes(page);
+    }
+}
@@ -0,0 +1,53 @@
+package com.example.benchmark;
+
+import com.example.security.JwtAuthenticationFilter;
+import com.example.security.JwtTokenProvider;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * One authenticated request through the JWT filter: header parsing, verification, revocation check and
+ * security context population. The mock request and response are part of the measured cost.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JwtAuthenticationFilterBenchmark {
+
+    @Param({"false", "true"})
+    private boolean verifiedCache;
+
+    /** Whether tokens in our own format skip jjwt's parser; see {@code CompactTokenVerifier}. */
+    @Param({"false", "true"})
+    private boolean compactVerifier;
+
+    private JwtAuthenticationFilter filter;
+    private String authorization;
+
+    @Setup
+    public void setUp() {
+        JwtTokenProvider jwtTokenProvider = Fixtures.jwtTokenProvider(verifiedCache, compactVerifier);
+        filter = new JwtAuthenticationFilter(jwtTokenProvider, Fixtures.tokenRevocationService(),
+                (request, response, handler, ex) -> null, new SimpleMeterRegistry());
+        authorization = "Bearer " + jwtTokenProvider.generateToken("benchmark-user", 0);
+    }
+
+    @Benchmark
+    public int authenticate() throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/users");
+        request.addHeader("Authorization", authorization);
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        filter.doFilter(request, response, new MockFilterChain());
+        SecurityContextHolder.clearContext();
+        return response.getStatus();
+    }
+}
@@ -0,0 +1,47 @@
+package com.example.benchmark;
+
+import com.example.security.JwtTokenProvider;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JwtTokenProviderBenchmark {
+
+    /** Whether repeat verifications are served from {@code VerifiedTokenCache}. */
+    @Param({"false", "true"})
+    private boolean verifiedCache;
+
+    /** Whether tokens in our own format skip jjwt's parser; see {@code CompactTokenVerifier}. */
+    @Param({"false", "true"})
+    private boolean compactVerifier;
+
+    private JwtTokenProvider jwtTokenProvider;
+    private String token;
+
+    @Setup
+    public void setUp() {
+        jwtTokenProvider = Fixtures.jwtTokenProvider(verifiedCache, compactVerifier);
+        token = jwtTokenProvider.generateToken("benchmark-user", 3);
+    }
+
+    @Benchmark
+    public String generateToken() {
+        return jwtTokenProvider.generateToken("benchmark-user", 3);
+    }
+
+    @Benchmark
+    public boolean validateToken() {
+        return jwtTokenProvider.validateToken(token);
+    }
+
+    @Benchmark
+    public String getUserIdFromToken() {
+        return jwtTokenProvider.getUserIdFromToken(token);
+    }
+}
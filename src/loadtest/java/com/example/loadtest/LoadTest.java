@@ -0,0 +1,280 @@
+package com.example.loadtest;
+
+import com.example.Application;
+import com.example.security.JwtTokenProvider;
+import com.example.security.Role;
+import com.example.user.User;
+import com.example.user.UserRepository;
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Whole-stack load generator: boots the application on a random port with an in-memory H2 database, seeds users
+ * and drives a weighted mix of requests over HTTP at a fixed arrival rate.
+ *
+ * <p>Requests are issued on a schedule that does not wait for earlier responses, and latency is measured from
+ * each request's scheduled start rather than from when it was actually sent. A stalled server therefore shows up
+ * as queueing time in the histograms instead of silently lowering the offered load (coordinated omission).
+ *
+ * <p>Options, as {@code --name=value} arguments; everything else is passed to Spring:
+ * <ul>
+ *   <li>{@code rate} requests per second (default 200)</li>
+ *   <li>{@code duration} measured seconds (default 30), after {@code warmup} seconds (default 10)</li>
+ *   <li>{@code users} seeded users (default 1000)</li>
+ *   <li>{@code mix} weights per endpoint (default {@code login=20,users=40,hello=35,signup=5})</li>
+ * </ul>
+ */
+public class LoadTest {
+
+    private static final String PASSWORD = "password123";
+    private static final long MAX_LATENCY_MICROS = TimeUnit.MINUTES.toMicros(1);
+
+    enum Endpoint { SIGNUP, LOGIN, USERS, HELLO }
+
+    private final HttpClient client = HttpClient.newBuilder()
+            .version(HttpClient.Version.HTTP_1_1)
+            .connectTimeout(Duration.ofSeconds(5)).build();
+    private final Map<Endpoint, Histogram> histograms = new EnumMap<>(Endpoint.class);
+    private final Map<Endpoint, Map<Integer, LongAdder>> statuses = new EnumMap<>(Endpoint.class);
+    private final AtomicLong signupSequence = new AtomicLong();
+    private final String baseUrl;
+    private final List<String> userIds;
+    private final List<String> tokens;
+
+    private volatile boolean recording;
+
+    LoadTest(String baseUrl, List<String> userIds, List<String> tokens) {
+        this.baseUrl = baseUrl;
+        this.userIds = userIds;
+        this.tokens = tokens;
+        for (Endpoint endpoint : Endpoint.values()) {
+            histograms.put(endpoint, new ConcurrentHistogram(MAX_LATENCY_MICROS, 3));
+            statuses.put(endpoint, new ConcurrentHashMap<>());
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = new LinkedHashMap<>(Map.of(
+                "rate", "200", "duration", "30", "warmup", "10", "users", "1000",
+                "mix", "login=20,users=40,hello=35,signup=5"));
+        List<String> springArgs = new ArrayList<>(List.of(
+                "--server.port=0",
+                "--management.server.port=0",
+                "--spring.jpa.show-sql=false",
+                "--logging.level.root=warn",
+                "--logging.level.org.hibernate.SQL=warn",
+                "--logging.level.org.hibernate.type=warn",
+                // The harness is a single client address, which the rate limiter would otherwise throttle.
+                "--auth.rate-limit.enabled=false"));
+        for (String arg : args) {
+            String name = arg.startsWith("--") && arg.contains("=") ? arg.substring(2, arg.indexOf('=')) : null;
+            if (name != null && options.containsKey(name)) {
+                options.put(name, arg.substring(arg.indexOf('=') + 1));
+            } else {
+                springArgs.add(arg);
+            }
+        }
+
+        int rate = Integer.parseInt(options.get("rate"));
+        int seededUsers = Integer.parseInt(options.get("users"));
+        Endpoint[] schedule = schedule(options.get("mix"));
+
+        try (ConfigurableApplicationContext context =
+                     SpringApplication.run(Application.class, springArgs.toArray(String[]::new))) {
+            int port = ((WebServerApplicationContext) context).getWebServer().getPort();
+            List<String> userIds = seedUsers(context, seededUsers);
+            JwtTokenProvider jwtTokenProvider = context.getBean(JwtTokenProvider.class);
+            // Admin tokens, since the users endpoint in the mix is admin-only.
+            List<String> tokens = userIds.stream()
+                    .map(userId -> jwtTokenProvider.generateToken(userId, 0, EnumSet.of(Role.USER, Role.ADMIN)))
+                    .toList();
+
+            String contextPath = context.getEnvironment().getProperty("server.servlet.context-path", "");
+            LoadTest loadTest = new LoadTest("http://localhost:" + port + contextPath, userIds, tokens);
+            System.out.printf("Offering %d req/s to port %d: %ds warm-up, %ds measured, mix %s, %d users%n",
+                    rate, port, Integer.parseInt(options.get("warmup")), Integer.parseInt(options.get("duration")),
+                    options.get("mix"), seededUsers);
+
+            loadTest.run(schedule, rate, Duration.ofSeconds(Long.parseLong(options.get("warmup"))), false);
+            long measuredNanos = loadTest.run(schedule, rate, Duration.ofSeconds(Long.parseLong(options.get("duration"))), true);
+            loadTest.report(System.out, measuredNanos);
+            loadTest.writeHistograms(Path.of("target", "loadtest"));
+        }
+    }
+
+    /**
+     * Issues requests at fixed intervals for {@code duration}, then waits for those in flight to finish.
+     * Returns the length of the sending window in nanoseconds.
+     */
+    long run(Endpoint[] schedule, int rate, Duration duration, boolean record) throws InterruptedException {
+        recording = record;
+        long interval = TimeUnit.SECONDS.toNanos(1) / rate;
+        long total = duration.toNanos() / interval;
+        AtomicLong inFlight = new AtomicLong();
+        long start = System.nanoTime();
+        for (long i = 0; i < total; i++) {
+            long intended = start + i * interval;
+            long delay = intended - System.nanoTime();
+            if (delay > 0) {
+                LockSupport.parkNanos(delay);
+            }
+            Endpoint endpoint = schedule[(int) (i % schedule.length)];
+            inFlight.incrementAndGet();
+            client.sendAsync(request(endpoint), HttpResponse.BodyHandlers.discarding())
+                    .whenComplete((response, error) -> {
+                        record(endpoint, intended, response == null ? -1 : response.statusCode());
+                        inFlight.decrementAndGet();
+                    });
+        }
+        long sent = System.nanoTime() - start;
+        while (inFlight.get() > 0) {
+            Thread.sleep(10);
+        }
+        return sent;
+    }
+
+    private HttpRequest request(Endpoint endpoint) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int user = random.nextInt(userIds.size());
+        HttpRequest.Builder builder = HttpRequest.newBuilder().timeout(Duration.ofSeconds(30));
+        return switch (endpoint) {
+            case SIGNUP -> {
+                String userId = "lt" + signupSequence.incrementAndGet();
+                yield builder.uri(URI.create(baseUrl + "/api/auth/signup"))
+                        .header("Content-Type", "application/json")
+                        .POST(json("{\"userId\":\"%s\",\"password\":\"%s\",\"email\":\"%s@example.com\"}"
+                                .formatted(userId, PASSWORD, userId)))
+                        .build();
+            }
+            case LOGIN -> builder.uri(URI.create(baseUrl + "/api/auth/login"))
+                    .header("Content-Type", "application/json")
+                    .POST(json("{\"userId\":\"%s\",\"password\":\"%s\"}".formatted(userIds.get(user), PASSWORD)))
+                    .build();
+            case USERS -> builder.uri(URI.create(baseUrl + "/api/users?limit=20"))
+                    .header("Authorization", "Bearer " + tokens.get(user))
+                    .GET().build();
+            case HELLO -> builder.uri(URI.create(baseUrl + "/hello"))
+                    .header("Authorization", "Bearer " + tokens.get(user))
+                    .GET().build();
+        };
+    }
+
+    private void record(Endpoint endpoint, long intendedStart, int status) {
+        if (!recording) {
+            return;
+        }
+        long micros = TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - intendedStart);
+        histograms.get(endpoint).recordValue(Math.min(micros, MAX_LATENCY_MICROS));
+        statuses.get(endpoint).computeIfAbsent(status, ignored -> new LongAdder()).increment();
+    }
+
+    void report(PrintStream out, long measuredNanos) {
+        double seconds = measuredNanos / 1e9;
+        out.printf("%n%-8s %9s %10s %10s %10s %10s %10s  %s%n",
+                "endpoint", "count", "req/s", "p50 ms", "p99 ms", "p99.9 ms", "max ms", "status counts");
+        for (Endpoint endpoint : Endpoint.values()) {
+            Histogram histogram = histograms.get(endpoint);
+            if (histogram.getTotalCount() == 0) {
+                continue;
+            }
+            out.printf("%-8s %9d %10.1f %10.2f %10.2f %10.2f %10.2f  %s%n",
+                    endpoint.name().toLowerCase(), histogram.getTotalCount(), histogram.getTotalCount() / seconds,
+                    millis(histogram.getValueAtPercentile(50)), millis(histogram.getValueAtPercentile(99)),
+                    millis(histogram.getValueAtPercentile(99.9)), millis(histogram.getMaxValue()),
+                    statuses.get(endpoint));
+        }
+    }
+
+    void writeHistograms(Path directory) throws IOException {
+        Files.createDirectories(directory);
+        for (Endpoint endpoint : Endpoint.values()) {
+            Path file = directory.resolve(endpoint.name().toLowerCase() + ".hgrm");
+            try (PrintStream out = new PrintStream(Files.newOutputStream(file))) {
+                // Scaled to milliseconds, the unit HdrHistogram's plotter expects.
+                histograms.get(endpoint).outputPercentileDistribution(out, 1000.0);
+            }
+        }
+        System.out.println("Percentile distributions written to " + directory);
+    }
+
+    private static List<String> seedUsers(ConfigurableApplicationContext context, int count) {
+        UserRepository userRepository = context.getBean(UserRepository.class);
+        // One hash for everyone: seeding should not take count * 80ms of BCrypt.
+        String hash = context.getBean(PasswordEncoder.class).encode(PASSWORD);
+        List<String> userIds = new ArrayList<>(count);
+        List<User> batch = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            User user = new User();
+            user.setUserId("seed" + i);
+            user.setPassword(hash);
+            user.setEmail("seed" + i + "@example.com");
+            batch.add(user);
+            userIds.add(user.getUserId());
+            if (batch.size() == 500 || i == count - 1) {
+                userRepository.saveAll(batch);
+                batch.clear();
+            }
+        }
+        return userIds;
+    }
+
+    // Spreads each endpoint's share evenly over a 100-slot cycle instead of sending it in bursts.
+    private static Endpoint[] schedule(String mix) {
+        Map<Endpoint, Integer> weights = new EnumMap<>(Endpoint.class);
+        int total = 0;
+        for (String part : mix.split(",")) {
+            String[] pair = part.trim().split("=");
+            int weight = Integer.parseInt(pair[1].trim());
+            weights.put(Endpoint.valueOf(pair[0].trim().toUpperCase()), weight);
+            total += weight;
+        }
+        Endpoint[] slots = new Endpoint[100];
+        double[] credit = new double[Endpoint.values().length];
+        for (int slot = 0; slot < slots.length; slot++) {
+            Endpoint best = null;
+            for (Map.Entry<Endpoint, Integer> entry : weights.entrySet()) {
+                credit[entry.getKey().ordinal()] += (double) entry.getValue() / total;
+                if (best == null || credit[entry.getKey().ordinal()] > credit[best.ordinal()]) {
+                    best = entry.getKey();
+                }
+            }
+            credit[best.ordinal()] -= 1;
+            slots[slot] = best;
+        }
+        return slots;
+    }
+
+    private static HttpRequest.BodyPublisher json(String body) {
+        return HttpRequest.BodyPublishers.ofString(body);
+    }
+
+    private static double millis(long micros) {
+        return micros / 1000.0;
+    }
+}
@@ -0,0 +1,147 @@
+package com.example.common;
+
+import java.util.Locale;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Counts the SQL statements and JDBC execution time of one unit of work, usually an HTTP request.
+ *
+ * <p>Statements are attributed to the stats bound to the thread that runs them. Work handed to another pool,
+ * such as a login's password check on the hashing pool and the writes that follow it on the application task
+ * executor, is attributed through {@link #propagating(Executor)}.
+ * Nothing is counted while no stats are bound, and the Hibernate hooks that feed this class are only installed
+ * when {@code db.query-stats.enabled} is set.
+ *
+ * <pre>
+ * QueryStats stats = new QueryStats();
+ * try (QueryStats.Binding ignored = stats.bind()) {
+ *     userService.login(request);
+ * }
+ * assertEquals(1, stats.count(QueryStats.Kind.SELECT));
+ * </pre>
+ */
+public final class QueryStats {
+
+    public enum Kind { SELECT, INSERT, UPDATE, DELETE, OTHER }
+
+    private static final ThreadLocal<QueryStats> CURRENT = new ThreadLocal<>();
+
+    private final AtomicLongArray counts = new AtomicLongArray(Kind.values().length);
+    private final AtomicLong executionNanos = new AtomicLong();
+
+    public static QueryStats current() {
+        return CURRENT.get();
+    }
+
+    /**
+     * Attributes statements run on this thread to these stats until the binding is closed.
+     */
+    public Binding bind() {
+        QueryStats previous = CURRENT.get();
+        CURRENT.set(this);
+        return () -> {
+            if (previous == null) {
+                CURRENT.remove();
+            } else {
+                CURRENT.set(previous);
+            }
+        };
+    }
+
+    /**
+     * Wraps {@code executor} so that each task runs with the stats that were bound when it was submitted.
+     */
+    public static Executor propagating(Executor executor) {
+        return command -> {
+            QueryStats stats = CURRENT.get();
+            if (stats == null) {
+                executor.execute(command);
+                return;
+            }
+            executor.execute(() -> {
+                try (Binding ignored = stats.bind()) {
+                    command.run();
+                }
+            });
+        };
+    }
+
+    static void recordStatement(String sql) {
+        QueryStats stats = CURRENT.get();
+        if (stats != null) {
+            stats.counts.incrementAndGet(kindOf(sql).ordinal());
+        }
+    }
+
+    static void recordExecution(long nanos) {
+        QueryStats stats = CURRENT.get();
+        if (stats != null) {
+            stats.executionNanos.addAndGet(nanos);
+        }
+    }
+
+    public long count(Kind kind) {
+        return counts.get(kind.ordinal());
+    }
+
+    public long total() {
+        long total = 0;
+        for (int i = 0; i < counts.length(); i++) {
+            total += counts.get(i);
+        }
+        return total;
+    }
+
+    public long executionNanos() {
+        return executionNanos.get();
+    }
+
+    /**
+     * For example {@code select=1, insert=1, update=0, delete=0, other=0}.
+     */
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        for (Kind kind : Kind.values()) {
+            if (sb.length() > 0) {
+                sb.append(", ");
+            }
+            sb.append(kind.name().toLowerCase(Locale.ROOT)).append('=').append(count(kind));
+        }
+        return sb.toString();
+    }
+
+    static Kind kindOf(String sql) {
+        int start = 0;
+        while (start < sql.length() && (Character.isWhitespace(sql.charAt(start)) || sql.charAt(start) == '(')) {
+            start++;
+        }
+        if (startsWith(sql, start, "select") || startsWith(sql, start, "with")) {
+            return Kind.SELECT;
+        }
+        if (startsWith(sql, start, "insert")) {
+            return Kind.INSERT;
+        }
+        if (startsWith(sql, start, "update")) {
+            return Kind.UPDATE;
+        }
+        if (startsWith(sql, start, "delete")) {
+            return Kind.DELETE;
+        }
+        return Kind.OTHER;
+    }
+
+    private static boolean startsWith(String sql, int offset, String keyword) {
+        return sql.regionMatches(true, offset, keyword, 0, keyword.length());
+    }
+
+    /**
+     * Undoes a {@link #bind()}; closing never throws.
+     */
+    public interface Binding extends AutoCloseable {
+        @Override
+        void close();
+    }
+}
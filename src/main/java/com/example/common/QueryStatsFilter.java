@@ -0,0 +1,44 @@
+package com.example.common;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+
+/**
+ * Binds a fresh {@link QueryStats} to each request, and again on its async dispatch so the statements of an async
+ * login or export are counted too. The totals are logged at debug level once the request completes, and
+ * {@link QueryStatsResponseAdvice} copies them into response headers.
+ */
+@Slf4j
+public class QueryStatsFilter extends OncePerRequestFilter {
+
+    static final String ATTRIBUTE = QueryStats.class.getName();
+
+    @Override
+    protected boolean shouldNotFilterAsyncDispatch() {
+        return false;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        QueryStats stats = (QueryStats) request.getAttribute(ATTRIBUTE);
+        if (stats == null) {
+            stats = new QueryStats();
+            request.setAttribute(ATTRIBUTE, stats);
+        }
+        try (QueryStats.Binding ignored = stats.bind()) {
+            filterChain.doFilter(request, response);
+        } finally {
+            if (!request.isAsyncStarted() && log.isDebugEnabled()) {
+                log.debug("{} {}: {} statements ({}), {} ms in JDBC", request.getMethod(), request.getRequestURI(),
+                        stats.total(), stats, String.format("%.2f", stats.executionNanos() / 1e6));
+            }
+        }
+    }
+}
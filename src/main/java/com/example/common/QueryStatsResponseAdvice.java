@@ -0,0 +1,37 @@
+package com.example.common;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.MethodParameter;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.http.server.ServerHttpRequest;
+import org.springframework.http.server.ServerHttpResponse;
+import org.springframework.web.bind.annotation.RestControllerAdvice;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyAdvice;
+
+/**
+ * Reports the statements counted so far for the request in {@code X-Query-Count}, {@code X-Query-Types} and
+ * {@code X-Query-Time-Ms}, just before the body is written. Streamed bodies are not covered.
+ */
+@RestControllerAdvice
+@ConditionalOnProperty(name = "db.query-stats.enabled", havingValue = "true")
+public class QueryStatsResponseAdvice implements ResponseBodyAdvice<Object> {
+
+    @Override
+    public boolean supports(MethodParameter returnType, Class<? extends HttpMessageConverter<?>> converterType) {
+        return true;
+    }
+
+    @Override
+    public Object beforeBodyWrite(Object body, MethodParameter returnType, MediaType selectedContentType,
+                                  Class<? extends HttpMessageConverter<?>> selectedConverterType,
+                                  ServerHttpRequest request, ServerHttpResponse response) {
+        QueryStats stats = QueryStats.current();
+        if (stats != null) {
+            response.getHeaders().set("X-Query-Count", String.valueOf(stats.total()));
+            response.getHeaders().set("X-Query-Types", stats.toString());
+            response.getHeaders().set("X-Query-Time-Ms", String.format("%.2f", stats.executionNanos() / 1e6));
+        }
+        return body;
+    }
+}
@@ -0,0 +1,32 @@
+package com.example.common;
+
+import org.hibernate.SessionEventListener;
+
+/**
+ * Adds JDBC execution time to the {@link QueryStats} bound to the current thread. Hibernate creates one
+ * instance per session, and a session's statements run one at a time.
+ */
+public class QueryStatsSessionListener implements SessionEventListener {
+
+    private long startedAt;
+
+    @Override
+    public void jdbcExecuteStatementStart() {
+        startedAt = System.nanoTime();
+    }
+
+    @Override
+    public void jdbcExecuteStatementEnd() {
+        QueryStats.recordExecution(System.nanoTime() - startedAt);
+    }
+
+    @Override
+    public void jdbcExecuteBatchStart() {
+        startedAt = System.nanoTime();
+    }
+
+    @Override
+    public void jdbcExecuteBatchEnd() {
+        QueryStats.recordExecution(System.nanoTime() - startedAt);
+    }
+}
@@ -0,0 +1,16 @@
+package com.example.common;
+
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+
+/**
+ * Counts each statement Hibernate prepares against the {@link QueryStats} bound to the current thread.
+ * The SQL is returned unchanged.
+ */
+public class QueryStatsStatementInspector implements StatementInspector {
+
+    @Override
+    public String inspect(String sql) {
+        QueryStats.recordStatement(sql);
+        return sql;
+    }
+}
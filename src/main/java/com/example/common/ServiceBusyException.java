@@ -0,0 +1,26 @@
+package com.example.common;
+
+import lombok.Getter;
+import org.springframework.http.HttpStatus;
+
+/**
+ * Thrown when a bounded resource or a rate limit refuses more work. Rendered with a {@code Retry-After} header,
+ * as 503 by default or 429 when the client itself is over its limit.
+ */
+@Getter
+public class ServiceBusyException extends ApiException {
+    private final long retryAfterSeconds;
+
+    public ServiceBusyException(String message, long retryAfterSeconds) {
+        this(HttpStatus.SERVICE_UNAVAILABLE, message, retryAfterSeconds);
+    }
+
+    public ServiceBusyException(HttpStatus status, String message, long retryAfterSeconds) {
+        super(status, message);
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+
+    public static ServiceBusyException tooManyRequests(String message, long retryAfterSeconds) {
+        return new ServiceBusyException(HttpStatus.TOO_MANY_REQUESTS, message, retryAfterSeconds);
+    }
+}
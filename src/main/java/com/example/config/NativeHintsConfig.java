@@ -0,0 +1,58 @@
+package com.example.config;
+
+import com.example.user.LoginStateCache;
+import com.example.user.UserDto;
+import org.springframework.aot.hint.MemberCategory;
+import org.springframework.aot.hint.RuntimeHints;
+import org.springframework.aot.hint.RuntimeHintsRegistrar;
+import org.springframework.aot.hint.TypeReference;
+import org.springframework.aot.hint.annotation.RegisterReflectionForBinding;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.ImportRuntimeHints;
+
+/**
+ * Reflection and resource hints for the native image that Spring AOT cannot infer from the bean definitions.
+ * Entities, their converters and listeners, repositories, request bodies and exception handler responses are
+ * covered by Spring's own AOT processing.
+ */
+@Configuration(proxyBeanMethods = false)
+@ImportRuntimeHints(NativeHintsConfig.Hints.class)
+// Returned as ResponseEntity<?> by UserController.getUsers, written directly by the NDJSON export, and read
+// directly by the bulk import.
+@RegisterReflectionForBinding({UserDto.Response.class, UserDto.PageResponse.class, UserDto.ImportRow.class,
+        UserDto.SignupStatus.class})
+public class NativeHintsConfig {
+
+    static class Hints implements RuntimeHintsRegistrar {
+
+        // jjwt-api instantiates its implementation by class name.
+        private static final String[] JJWT_TYPES = {
+                "io.jsonwebtoken.impl.DefaultJwtBuilder",
+                "io.jsonwebtoken.impl.DefaultJwtParserBuilder",
+                "io.jsonwebtoken.impl.DefaultJwtParser",
+                "io.jsonwebtoken.impl.DefaultClaims",
+                "io.jsonwebtoken.impl.DefaultHeader",
+                "io.jsonwebtoken.impl.DefaultJwsHeader",
+                "io.jsonwebtoken.impl.compression.DeflateCompressionCodec",
+                "io.jsonwebtoken.impl.compression.GzipCompressionCodec",
+                "io.jsonwebtoken.jackson.io.JacksonSerializer",
+                "io.jsonwebtoken.jackson.io.JacksonDeserializer"
+        };
+
+        @Override
+        public void registerHints(RuntimeHints hints, ClassLoader classLoader) {
+            for (String type : JJWT_TYPES) {
+                hints.reflection().registerType(TypeReference.of(type), MemberCategory.INVOKE_PUBLIC_CONSTRUCTORS);
+            }
+            // Keys.secretKeyFor, used for the ephemeral key, calls a static method on this class reflectively.
+            hints.reflection().registerType(TypeReference.of("io.jsonwebtoken.impl.crypto.MacProvider"),
+                    MemberCategory.INVOKE_PUBLIC_METHODS);
+            // jjwt finds its JSON (de)serializer and compression codecs through ServiceLoader.
+            hints.resources().registerPattern("META-INF/services/io.jsonwebtoken.*");
+
+            // Built by Hibernate from the JPQL constructor expression in UserRepository.findLoginStateByUserId.
+            hints.reflection().registerType(LoginStateCache.LoginState.class,
+                    MemberCategory.INVOKE_DECLARED_CONSTRUCTORS);
+        }
+    }
+}
@@ -0,0 +1,38 @@
+package com.example.config;
+
+import com.example.common.QueryStatsFilter;
+import com.example.common.QueryStatsSessionListener;
+import com.example.common.QueryStatsStatementInspector;
+import org.hibernate.cfg.AvailableSettings;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
+
+/**
+ * Per-request SQL statement counts and JDBC time, for the dev profile and for tests that assert query budgets.
+ * See {@link com.example.common.QueryStats}; the response headers are added by
+ * {@link com.example.common.QueryStatsResponseAdvice}.
+ */
+@Configuration
+@ConditionalOnProperty(name = "db.query-stats.enabled", havingValue = "true")
+public class QueryStatsConfig {
+
+    @Bean
+    public HibernatePropertiesCustomizer queryStatsHibernateCustomizer() {
+        return properties -> {
+            properties.put(AvailableSettings.STATEMENT_INSPECTOR, new QueryStatsStatementInspector());
+            properties.put(AvailableSettings.AUTO_SESSION_EVENTS_LISTENER, QueryStatsSessionListener.class.getName());
+        };
+    }
+
+    @Bean
+    public FilterRegistrationBean<QueryStatsFilter> queryStatsFilter() {
+        FilterRegistrationBean<QueryStatsFilter> registration = new FilterRegistrationBean<>(new QueryStatsFilter());
+        // Outside the security chain, so statements issued while authenticating are counted as well.
+        registration.setOrder(Ordered.HIGHEST_PRECEDENCE);
+        return registration;
+    }
+}
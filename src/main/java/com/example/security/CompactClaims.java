@@ -0,0 +1,193 @@
+package com.example.security;
+
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.RequiredTypeException;
+
+import java.util.AbstractMap;
+import java.util.Collections;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Read-only claims of a token verified by {@link CompactTokenVerifier}: the handful of fields our tokens carry,
+ * held in plain fields instead of a map. The {@link Map} view is only materialized if something iterates it.
+ */
+final class CompactClaims extends AbstractMap<String, Object> implements Claims {
+
+    static final int NO_VALUE = Integer.MIN_VALUE;
+
+    private final String subject;
+    private final String id;
+    private final String type;
+    private final String family;
+    private final long issuedAt;
+    private final long expiration;
+    private final int epoch;
+    private final int roles;
+
+    /**
+     * {@code issuedAt} and {@code expiration} are in epoch seconds, or {@code -1} when absent; {@code epoch} and
+     * {@code roles} are {@link #NO_VALUE} when absent.
+     */
+    CompactClaims(String subject, String id, String type, String family,
+                  long issuedAt, long expiration, int epoch, int roles) {
+        this.subject = subject;
+        this.id = id;
+        this.type = type;
+        this.family = family;
+        this.issuedAt = issuedAt;
+        this.expiration = expiration;
+        this.epoch = epoch;
+        this.roles = roles;
+    }
+
+    @Override
+    public String getSubject() {
+        return subject;
+    }
+
+    @Override
+    public String getId() {
+        return id;
+    }
+
+    long expirationSeconds() {
+        return expiration;
+    }
+
+    @Override
+    public Date getExpiration() {
+        return expiration < 0 ? null : new Date(expiration * 1000);
+    }
+
+    @Override
+    public Date getIssuedAt() {
+        return issuedAt < 0 ? null : new Date(issuedAt * 1000);
+    }
+
+    @Override
+    public String getIssuer() {
+        return null;
+    }
+
+    @Override
+    public String getAudience() {
+        return null;
+    }
+
+    @Override
+    public Date getNotBefore() {
+        return null;
+    }
+
+    @Override
+    public Object get(Object name) {
+        if (!(name instanceof String claim)) {
+            return null;
+        }
+        return switch (claim) {
+            case Claims.SUBJECT -> subject;
+            case Claims.ID -> id;
+            case JwtTokenProvider.TOKEN_TYPE_CLAIM -> type;
+            case JwtTokenProvider.FAMILY_CLAIM -> family;
+            case Claims.ISSUED_AT -> issuedAt < 0 ? null : number(issuedAt);
+            case Claims.EXPIRATION -> expiration < 0 ? null : number(expiration);
+            case JwtTokenProvider.EPOCH_CLAIM -> epoch == NO_VALUE ? null : Integer.valueOf(epoch);
+            case JwtTokenProvider.ROLES_CLAIM -> roles == NO_VALUE ? null : Integer.valueOf(roles);
+            default -> null;
+        };
+    }
+
+    // Boxed the way jjwt's JSON parsing boxes them, so both kinds of claims compare equal.
+    private static Number number(long value) {
+        if (value <= Integer.MAX_VALUE) {
+            return Integer.valueOf((int) value);
+        }
+        return Long.valueOf(value);
+    }
+
+    @Override
+    public boolean containsKey(Object name) {
+        return get(name) != null;
+    }
+
+    /**
+     * Converts like jjwt's own claims do for the types our code asks for: numbers to {@code Integer} or
+     * {@code Long}, and {@code exp} or {@code iat} to {@code Date}.
+     */
+    @Override
+    public <T> T get(String claimName, Class<T> requiredType) {
+        Object value = get(claimName);
+        if (value == null || requiredType.isInstance(value)) {
+            return requiredType.cast(value);
+        }
+        if (value instanceof Number number) {
+            if (requiredType == Integer.class) {
+                return requiredType.cast(number.intValue());
+            }
+            if (requiredType == Long.class) {
+                return requiredType.cast(number.longValue());
+            }
+            if (requiredType == Date.class) {
+                return requiredType.cast(new Date(number.longValue() * 1000));
+            }
+        }
+        throw new RequiredTypeException("Expected value to be of type: " + requiredType
+                + ", but was " + value.getClass());
+    }
+
+    @Override
+    public Set<Entry<String, Object>> entrySet() {
+        Map<String, Object> claims = new LinkedHashMap<>();
+        for (String name : new String[] {Claims.ID, JwtTokenProvider.TOKEN_TYPE_CLAIM, JwtTokenProvider.FAMILY_CLAIM,
+                JwtTokenProvider.EPOCH_CLAIM, JwtTokenProvider.ROLES_CLAIM, Claims.SUBJECT, Claims.ISSUED_AT,
+                Claims.EXPIRATION}) {
+            Object value = get(name);
+            if (value != null) {
+                claims.put(name, value);
+            }
+        }
+        return Collections.unmodifiableMap(claims).entrySet();
+    }
+
+    @Override
+    public Claims setIssuer(String iss) {
+        throw readOnly();
+    }
+
+    @Override
+    public Claims setSubject(String sub) {
+        throw readOnly();
+    }
+
+    @Override
+    public Claims setAudience(String aud) {
+        throw readOnly();
+    }
+
+    @Override
+    public Claims setExpiration(Date exp) {
+        throw readOnly();
+    }
+
+    @Override
+    public Claims setNotBefore(Date nbf) {
+        throw readOnly();
+    }
+
+    @Override
+    public Claims setIssuedAt(Date iat) {
+        throw readOnly();
+    }
+
+    @Override
+    public Claims setId(String jti) {
+        throw readOnly();
+    }
+
+    private static UnsupportedOperationException readOnly() {
+        return new UnsupportedOperationException("Verified claims are read-only");
+    }
+}
@@ -0,0 +1,439 @@
+package com.example.security;
+
+import io.jsonwebtoken.JwsHeader;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.SignatureAlgorithm;
+import io.jsonwebtoken.security.SignatureException;
+
+import javax.crypto.Mac;
+import javax.crypto.SecretKey;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Verifies the tokens {@link JwtTokenProvider} issues without going through jjwt's general-purpose parser.
+ *
+ * <p>A token is only handled here if its header segment is byte-for-byte the one we sign with for a key currently
+ * in the keyring, which pins both the key and the HMAC algorithm. The signature is checked with a pooled
+ * {@link Mac}, the segments are base64url-decoded into buffers pooled with it, and a small scanner reads the payload
+ * fields our tokens carry. Apart from the claim strings themselves nothing is allocated.
+ *
+ * <p>The pool is per key and not per thread, so the saving does not depend on threads being reused: with virtual
+ * threads every request runs on a new thread, and a thread-local {@link Mac} would be created and initialized,
+ * and its buffers allocated, once per request. A pool miss clones the key's initialized prototype instead.
+ *
+ * <p>{@link #verify} returns {@code null} for anything it does not recognize, such as a foreign header, an
+ * unknown claim, an escaped string or an expired token, so the caller can hand the token to jjwt, which then
+ * accepts or rejects it with its usual exceptions. A recognized header with a wrong signature is rejected here.
+ */
+final class CompactTokenVerifier {
+
+    // Longer tokens are not ours; decoding them would only grow the pooled buffers.
+    private static final int MAX_TOKEN_LENGTH = 4096;
+    private static final byte[] BASE64URL = new byte[128];
+
+    static {
+        Arrays.fill(BASE64URL, (byte) -1);
+        String alphabet = "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789-_";
+        for (int i = 0; i < alphabet.length(); i++) {
+            BASE64URL[alphabet.charAt(i)] = (byte) i;
+        }
+    }
+
+    private final JwtKeyring keyring;
+    private volatile KnownHeaders knownHeaders = new KnownHeaders(Map.of(), new KnownHeader[0]);
+
+    CompactTokenVerifier(JwtKeyring keyring) {
+        this.keyring = keyring;
+    }
+
+    /**
+     * Verifies the token that starts at {@code offset} in {@code source} and runs to its end.
+     *
+     * @return the claims, or {@code null} if the token should be verified by jjwt instead
+     * @throws SignatureException if the token is in our format but its signature does not match
+     */
+    CompactClaims verify(String source, int offset) {
+        int length = source.length() - offset;
+        if (length <= 0 || length > MAX_TOKEN_LENGTH) {
+            return null;
+        }
+        KnownHeader header = match(source, offset);
+        if (header == null) {
+            return null;
+        }
+        int payloadStart = offset + header.encoded.length() + 1;
+        int signatureStart = source.indexOf('.', payloadStart) + 1;
+        if (signatureStart == 0 || source.indexOf('.', signatureStart) >= 0) {
+            return null;
+        }
+
+        Verification verification = header.acquire();
+        try {
+            return verify(source, offset, header, payloadStart, signatureStart, verification);
+        } finally {
+            header.release(verification);
+        }
+    }
+
+    private static CompactClaims verify(String source, int offset, KnownHeader header, int payloadStart,
+                                        int signatureStart, Verification verification) {
+        Buffers buffers = verification.buffers;
+        int signatureLength = decode(source, signatureStart, source.length(), buffers.signature);
+        if (signatureLength != header.macLength) {
+            return null;
+        }
+        byte[] signed = buffers.signed(signatureStart - 1 - offset);
+        for (int i = offset, j = 0; i < signatureStart - 1; i++, j++) {
+            char c = source.charAt(i);
+            if (c >= 128) {
+                return null;
+            }
+            signed[j] = (byte) c;
+        }
+        Mac mac = verification.mac;
+        mac.update(signed, 0, signatureStart - 1 - offset);
+        try {
+            mac.doFinal(buffers.expected, 0);
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("HMAC output buffer too small", e);
+        }
+        int difference = 0;
+        for (int i = 0; i < signatureLength; i++) {
+            difference |= buffers.expected[i] ^ buffers.signature[i];
+        }
+        if (difference != 0) {
+            throw new SignatureException("JWT signature does not match locally computed signature");
+        }
+
+        byte[] payload = buffers.payload(signatureStart - 1 - payloadStart);
+        int payloadLength = decode(source, payloadStart, signatureStart - 1, payload);
+        if (payloadLength < 0) {
+            return null;
+        }
+        CompactClaims claims = new PayloadScanner(payload, payloadLength).scan();
+        if (claims == null || claims.expirationSeconds() * 1000 < System.currentTimeMillis()) {
+            // Expired tokens go to jjwt too, so they fail with its ExpiredJwtException.
+            return null;
+        }
+        return claims;
+    }
+
+    private KnownHeader match(String source, int offset) {
+        Map<String, SecretKey> keys = keyring.verificationKeys();
+        KnownHeaders headers = knownHeaders;
+        if (headers.keys != keys) {
+            headers = KnownHeaders.of(keys);
+            knownHeaders = headers;
+        }
+        for (KnownHeader header : headers.headers) {
+            String encoded = header.encoded;
+            if (source.startsWith(encoded, offset)
+                    && source.length() > offset + encoded.length()
+                    && source.charAt(offset + encoded.length()) == '.') {
+                return header;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Decodes unpadded base64url from {@code source[from, to)} into {@code out}.
+     *
+     * @return the number of bytes written, or {@code -1} if the input is not unpadded base64url or does not fit
+     */
+    private static int decode(String source, int from, int to, byte[] out) {
+        int length = to - from;
+        if (length % 4 == 1 || decodedLength(length) > out.length) {
+            return -1;
+        }
+        int written = 0;
+        int bits = 0;
+        int bitCount = 0;
+        for (int i = from; i < to; i++) {
+            char c = source.charAt(i);
+            int value = c < 128 ? BASE64URL[c] : -1;
+            if (value < 0) {
+                return -1;
+            }
+            bits = (bits << 6) | value;
+            bitCount += 6;
+            if (bitCount >= 8) {
+                bitCount -= 8;
+                out[written++] = (byte) (bits >> bitCount);
+            }
+        }
+        // Leftover bits must be zero, so that each byte string has exactly one accepted encoding.
+        return (bits & ((1 << bitCount) - 1)) == 0 ? written : -1;
+    }
+
+    private static int decodedLength(int encodedLength) {
+        return encodedLength * 3 / 4;
+    }
+
+    /**
+     * Reads the flat JSON object our tokens carry. Returns {@code null} on anything else: unknown or repeated
+     * claims, escapes, non-integer numbers, nested values, or a missing {@code sub} or {@code exp}.
+     */
+    private static final class PayloadScanner {
+
+        private final byte[] json;
+        private final int end;
+        private int position;
+
+        private String subject;
+        private String id;
+        private String type;
+        private String family;
+        private long issuedAt = -1;
+        private long expiration = -1;
+        private long epoch = CompactClaims.NO_VALUE;
+        private long roles = CompactClaims.NO_VALUE;
+
+        PayloadScanner(byte[] json, int end) {
+            this.json = json;
+            this.end = end;
+        }
+
+        CompactClaims scan() {
+            if (!consume('{')) {
+                return null;
+            }
+            if (!consume('}')) {
+                do {
+                    if (!member()) {
+                        return null;
+                    }
+                } while (consume(','));
+                if (!consume('}')) {
+                    return null;
+                }
+            }
+            skipWhitespace();
+            if (position != end || subject == null || expiration < 0) {
+                return null;
+            }
+            return new CompactClaims(subject, id, type, family, issuedAt, expiration, (int) epoch, (int) roles);
+        }
+
+        private boolean member() {
+            skipWhitespace();
+            if (position >= end || json[position] != '"') {
+                return false;
+            }
+            int nameStart = ++position;
+            while (position < end && json[position] != '"' && json[position] != '\\') {
+                position++;
+            }
+            if (position >= end || json[position] != '"') {
+                return false;
+            }
+            int nameEnd = position++;
+            if (!consume(':')) {
+                return false;
+            }
+            skipWhitespace();
+
+            if (is(nameStart, nameEnd, "sub")) {
+                return subject == null && (subject = string()) != null;
+            }
+            if (is(nameStart, nameEnd, "jti")) {
+                return id == null && (id = string()) != null;
+            }
+            if (is(nameStart, nameEnd, JwtTokenProvider.TOKEN_TYPE_CLAIM)) {
+                return type == null && (type = string()) != null;
+            }
+            if (is(nameStart, nameEnd, JwtTokenProvider.FAMILY_CLAIM)) {
+                return family == null && (family = string()) != null;
+            }
+            if (is(nameStart, nameEnd, "iat")) {
+                return issuedAt < 0 && (issuedAt = number()) >= 0;
+            }
+            if (is(nameStart, nameEnd, "exp")) {
+                return expiration < 0 && (expiration = number()) >= 0;
+            }
+            if (is(nameStart, nameEnd, JwtTokenProvider.EPOCH_CLAIM)) {
+                return epoch == CompactClaims.NO_VALUE && (epoch = number()) >= 0 && epoch <= Integer.MAX_VALUE;
+            }
+            if (is(nameStart, nameEnd, JwtTokenProvider.ROLES_CLAIM)) {
+                return roles == CompactClaims.NO_VALUE && (roles = number()) >= 0 && roles <= Integer.MAX_VALUE;
+            }
+            return false;
+        }
+
+        private String string() {
+            if (position >= end || json[position] != '"') {
+                return null;
+            }
+            int start = ++position;
+            while (position < end && json[position] != '"') {
+                if (json[position] == '\\') {
+                    return null;
+                }
+                position++;
+            }
+            if (position >= end) {
+                return null;
+            }
+            return new String(json, start, position++ - start, StandardCharsets.UTF_8);
+        }
+
+        /**
+         * Reads a non-negative integer of up to 18 digits, or returns {@code -1}.
+         */
+        private long number() {
+            int start = position;
+            long value = 0;
+            while (position < end && json[position] >= '0' && json[position] <= '9') {
+                value = value * 10 + (json[position++] - '0');
+            }
+            int digits = position - start;
+            if (digits == 0 || digits > 18) {
+                return -1;
+            }
+            if (position < end && (json[position] == '.' || json[position] == 'e' || json[position] == 'E')) {
+                return -1;
+            }
+            return value;
+        }
+
+        private boolean is(int start, int end, String name) {
+            if (end - start != name.length()) {
+                return false;
+            }
+            for (int i = 0; i < name.length(); i++) {
+                if (json[start + i] != name.charAt(i)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private boolean consume(char expected) {
+            skipWhitespace();
+            if (position < end && json[position] == expected) {
+                position++;
+                return true;
+            }
+            return false;
+        }
+
+        private void skipWhitespace() {
+            while (position < end && (json[position] == ' ' || json[position] == '\t'
+                    || json[position] == '\n' || json[position] == '\r')) {
+                position++;
+            }
+        }
+    }
+
+    private static final class Buffers {
+
+        private byte[] signed = new byte[512];
+        private byte[] payload = new byte[384];
+        private final byte[] signature = new byte[64];
+        private final byte[] expected = new byte[64];
+
+        byte[] signed(int length) {
+            if (signed.length < length) {
+                signed = new byte[length];
+            }
+            return signed;
+        }
+
+        byte[] payload(int encodedLength) {
+            int length = decodedLength(encodedLength);
+            if (payload.length < length) {
+                payload = new byte[length];
+            }
+            return payload;
+        }
+    }
+
+    /**
+     * A {@link Mac} for one key and the buffers to verify with it, used by one verification at a time.
+     */
+    private static final class Verification {
+
+        private final Mac mac;
+        private final Buffers buffers = new Buffers();
+
+        Verification(Mac mac) {
+            this.mac = mac;
+        }
+    }
+
+    /**
+     * The header segment {@link JwtTokenProvider} writes for one key, and a pool of {@link Verification}s for that
+     * key. The pool is a fixed array of slots taken and returned with atomic swaps, so neither a hit nor a return
+     * allocates; a miss clones {@link #prototype}, and a return to a full pool drops the instance.
+     */
+    private static final class KnownHeader {
+
+        private static final int POOL_SIZE = Math.max(16, 4 * Runtime.getRuntime().availableProcessors());
+
+        private final String encoded;
+        private final int macLength;
+        private final Mac prototype;
+        private final AtomicReferenceArray<Verification> pool = new AtomicReferenceArray<>(POOL_SIZE);
+
+        KnownHeader(String keyId, SecretKey key) {
+            // Produced by jjwt itself with the same header parameters as JwtTokenProvider.createToken.
+            String token = Jwts.builder().setHeaderParam(JwsHeader.KEY_ID, keyId).setSubject("header")
+                    .signWith(key).compact();
+            this.encoded = token.substring(0, token.indexOf('.'));
+            String algorithm = SignatureAlgorithm.forSigningKey(key).getJcaName();
+            try {
+                this.prototype = Mac.getInstance(algorithm);
+                prototype.init(key);
+            } catch (GeneralSecurityException e) {
+                throw new IllegalStateException("Cannot initialize " + algorithm, e);
+            }
+            this.macLength = prototype.getMacLength();
+        }
+
+        Verification acquire() {
+            int start = start();
+            for (int i = 0; i < POOL_SIZE; i++) {
+                Verification pooled = pool.getAndSet((start + i) % POOL_SIZE, null);
+                if (pooled != null) {
+                    return pooled;
+                }
+            }
+            try {
+                return new Verification((Mac) prototype.clone());
+            } catch (CloneNotSupportedException e) {
+                throw new IllegalStateException(prototype.getAlgorithm() + " cannot be cloned", e);
+            }
+        }
+
+        void release(Verification verification) {
+            // Cheap, and leaves no partial input behind if a verification stopped between update and doFinal.
+            verification.mac.reset();
+            int start = start();
+            for (int i = 0; i < POOL_SIZE; i++) {
+                if (pool.compareAndSet((start + i) % POOL_SIZE, null, verification)) {
+                    return;
+                }
+            }
+        }
+
+        // Spreads concurrent callers over the slots.
+        private static int start() {
+            return ThreadLocalRandom.current().nextInt(POOL_SIZE);
+        }
+    }
+
+    private record KnownHeaders(Map<String, SecretKey> keys, KnownHeader[] headers) {
+
+        static KnownHeaders of(Map<String, SecretKey> keys) {
+            KnownHeader[] headers = keys.entrySet().stream()
+                    .map(entry -> new KnownHeader(entry.getKey(), entry.getValue()))
+                    .toArray(KnownHeader[]::new);
+            return new KnownHeaders(keys, headers);
+        }
+    }
+}
@@ -0,0 +1,70 @@
+package com.example.security;
+
+import io.jsonwebtoken.Claims;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.GrantedAuthority;
+
+import java.util.List;
+
+/**
+ * The authentication of a request that presented a verified access token. The principal is the user id, the
+ * details are the verified claims, and the authorities are the shared list {@link Role#authorities(int)} returns,
+ * so building one allocates nothing besides itself.
+ */
+public final class JwtAuthentication implements Authentication {
+
+    private final Claims claims;
+    private final List<GrantedAuthority> authorities;
+    private volatile boolean authenticated = true;
+
+    public JwtAuthentication(Claims claims) {
+        this.claims = claims;
+        this.authorities = Role.authorities(JwtTokenProvider.roleMask(claims));
+    }
+
+    @Override
+    public List<GrantedAuthority> getAuthorities() {
+        return authorities;
+    }
+
+    @Override
+    public Object getCredentials() {
+        return null;
+    }
+
+    /**
+     * The verified claims, for endpoints such as logout that need the token id.
+     */
+    @Override
+    public Claims getDetails() {
+        return claims;
+    }
+
+    @Override
+    public String getPrincipal() {
+        return claims.getSubject();
+    }
+
+    @Override
+    public String getName() {
+        return claims.getSubject();
+    }
+
+    @Override
+    public boolean isAuthenticated() {
+        return authenticated;
+    }
+
+    @Override
+    public void setAuthenticated(boolean authenticated) {
+        if (authenticated) {
+            throw new IllegalArgumentException("A JWT authentication cannot be marked trusted once cleared");
+        }
+        this.authenticated = false;
+    }
+
+    @Override
+    public String toString() {
+        return "JwtAuthentication[principal=" + getName() + ", authorities=" + authorities + "]";
+    }
+}
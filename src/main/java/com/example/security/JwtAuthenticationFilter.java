@@ -1,63 +1,121 @@
 package com.example.security;
 
 import com.example.common.ApiException;
+import io.jsonwebtoken.Claims;
 import io.jsonwebtoken.ExpiredJwtException;
 import io.jsonwebtoken.JwtException;
-import io.jsonwebtoken.MalformedJwtException;
-import io.jsonwebtoken.security.SignatureException;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
-import lombok.RequiredArgsConstructor;
-import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.http.HttpHeaders;
 import org.springframework.security.core.context.SecurityContextHolder;
-import org.springframework.security.core.userdetails.UserDetails;
-import org.springframework.security.core.userdetails.User;
-import org.springframework.util.StringUtils;
 import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.servlet.HandlerExceptionResolver;
 
 import java.io.IOException;
-import java.util.Collections;
+import java.util.concurrent.TimeUnit;
 
-@RequiredArgsConstructor
 public class JwtAuthenticationFilter extends OncePerRequestFilter {
 
+    private static final String BEARER_PREFIX = "Bearer ";
+
     private final JwtTokenProvider jwtTokenProvider;
+    private final TokenRevocationService tokenRevocationService;
+    private final HandlerExceptionResolver handlerExceptionResolver;
+    private final Timer validTimer;
+    private final Timer revokedTimer;
+    private final Timer expiredTimer;
+    private final Timer invalidTimer;
+    private final Timer errorTimer;
+
+    public JwtAuthenticationFilter(JwtTokenProvider jwtTokenProvider,
+                                   TokenRevocationService tokenRevocationService,
+                                   HandlerExceptionResolver handlerExceptionResolver,
+                                   MeterRegistry meterRegistry) {
+        this.jwtTokenProvider = jwtTokenProvider;
+        this.tokenRevocationService = tokenRevocationService;
+        this.handlerExceptionResolver = handlerExceptionResolver;
+        this.validTimer = verifyTimer("valid", meterRegistry);
+        this.revokedTimer = verifyTimer("revoked", meterRegistry);
+        this.expiredTimer = verifyTimer("expired", meterRegistry);
+        this.invalidTimer = verifyTimer("invalid", meterRegistry);
+        this.errorTimer = verifyTimer("error", meterRegistry);
+    }
+
+    private static Timer verifyTimer(String outcome, MeterRegistry meterRegistry) {
+        return Timer.builder("auth.token.verify")
+                .description("Access token signature, expiry and revocation checks")
+                .tag("outcome", outcome)
+                .register(meterRegistry);
+    }
 
     @Override
     protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
             throws ServletException, IOException {
-        
-        String token = extractJwtFromRequest(request);
-        
-        try {
-            if (StringUtils.hasText(token)) {
-                if (!jwtTokenProvider.validateToken(token)) {
-                    throw ApiException.unauthorized("Invalid or expired token");
+
+        String authorization = request.getHeader(HttpHeaders.AUTHORIZATION);
+        int tokenOffset = tokenOffset(authorization);
+
+        if (tokenOffset > 0) {
+            TokenVerificationEvent event = new TokenVerificationEvent();
+            event.begin();
+            long startedAt = System.nanoTime();
+            try {
+                Claims claims = jwtTokenProvider.verifyAccessToken(authorization, tokenOffset);
+                if (tokenRevocationService.isRevoked(claims)) {
+                    record(revokedTimer, startedAt, event, "revoked");
+                    reject(request, response, ApiException.unauthorized("Token has been revoked"));
+                    return;
                 }
-                
-                String userId = jwtTokenProvider.getUserIdFromToken(token);
-                UserDetails userDetails = new User(userId, "", Collections.emptyList());
-                UsernamePasswordAuthenticationToken authentication =
-                        new UsernamePasswordAuthenticationToken(userDetails, null, userDetails.getAuthorities());
-                
-                SecurityContextHolder.getContext().setAuthentication(authentication);
+                record(validTimer, startedAt, event, "valid");
+                // Roles come from the token itself, so authorizing the request needs no database lookup.
+                SecurityContextHolder.getContext().setAuthentication(new JwtAuthentication(claims));
+            } catch (ExpiredJwtException e) {
+                record(expiredTimer, startedAt, event, "expired");
+                reject(request, response, ApiException.unauthorized("Invalid or expired token"));
+                return;
+            } catch (JwtException e) {
+                record(invalidTimer, startedAt, event, "invalid");
+                reject(request, response, ApiException.unauthorized("Invalid token format"));
+                return;
+            } catch (Exception e) {
+                record(errorTimer, startedAt, event, "error");
+                reject(request, response, ApiException.unauthorized("Authentication failed"));
+                return;
             }
-        } catch (JwtException e) {
-            throw ApiException.unauthorized("Invalid token format");
-        } catch (Exception e) {
-            throw ApiException.unauthorized("Authentication failed");
         }
-        
+
         filterChain.doFilter(request, response);
     }
 
-    private String extractJwtFromRequest(HttpServletRequest request) {
-        String bearerToken = request.getHeader("Authorization");
-        if (StringUtils.hasText(bearerToken) && bearerToken.startsWith("Bearer ")) {
-            return bearerToken.substring(7);
+    private static void record(Timer timer, long startedAt, TokenVerificationEvent event, String outcome) {
+        timer.record(System.nanoTime() - startedAt, TimeUnit.NANOSECONDS);
+        event.outcome = outcome;
+        event.commit();
+    }
+
+    // Exceptions thrown from a filter never reach the @RestControllerAdvice, so hand them to it explicitly.
+    private void reject(HttpServletRequest request, HttpServletResponse response, ApiException ex) {
+        SecurityContextHolder.clearContext();
+        handlerExceptionResolver.resolveException(request, response, null, ex);
+    }
+
+    /**
+     * Returns where the token starts in a {@code Bearer} header, or {@code -1} if there is none. The token is
+     * verified in place rather than copied out of the header.
+     */
+    private static int tokenOffset(String authorization) {
+        if (authorization == null || !authorization.startsWith(BEARER_PREFIX)) {
+            return -1;
+        }
+        for (int i = BEARER_PREFIX.length(); i < authorization.length(); i++) {
+            if (!Character.isWhitespace(authorization.charAt(i))) {
+                return BEARER_PREFIX.length();
+            }
         }
-        return null;
+        return -1;
     }
 }
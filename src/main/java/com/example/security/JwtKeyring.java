@@ -0,0 +1,141 @@
+package com.example.security;
+
+import io.jsonwebtoken.SignatureAlgorithm;
+import io.jsonwebtoken.io.Decoders;
+import io.jsonwebtoken.security.Keys;
+import io.jsonwebtoken.security.SignatureException;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+
+import javax.crypto.SecretKey;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Properties;
+
+/**
+ * Set of HMAC keys identified by {@code kid}. One key signs new tokens; every key in the ring verifies.
+ *
+ * <p>To rotate without a validation gap: add the new key to every node first, then switch
+ * {@code active-key-id} to it, and only remove the old key once the tokens it signed have expired.
+ * A file-backed keyring is re-read on a schedule, so none of these steps needs a restart.
+ */
+@Slf4j
+@Component
+public class JwtKeyring {
+
+    private static final String KEY_PREFIX = "keys.";
+
+    private final JwtKeyringProperties properties;
+    private final VerifiedTokenCache verifiedTokenCache;
+
+    private volatile Snapshot snapshot;
+    private volatile long fileLastModified;
+
+    public JwtKeyring(JwtKeyringProperties properties, VerifiedTokenCache verifiedTokenCache) {
+        this.properties = properties;
+        this.verifiedTokenCache = verifiedTokenCache;
+        this.snapshot = load();
+    }
+
+    public SigningKey activeKey() {
+        return snapshot.active();
+    }
+
+    public SecretKey verificationKey(String keyId) {
+        Snapshot current = snapshot;
+        if (keyId == null) {
+            return current.active().key();
+        }
+        SecretKey key = current.keys().get(keyId);
+        if (key == null) {
+            throw new SignatureException("Unknown signing key id: " + keyId);
+        }
+        return key;
+    }
+
+    /**
+     * Every key that verifies, by id. The map is immutable and replaced as a whole when the keyring is reloaded.
+     */
+    public Map<String, SecretKey> verificationKeys() {
+        return snapshot.keys();
+    }
+
+    @Scheduled(fixedDelayString = "${jwt.keyring.reload-interval-ms:30000}")
+    public void reloadIfChanged() {
+        if (!StringUtils.hasText(properties.getFile())) {
+            return;
+        }
+        try {
+            long lastModified = Files.getLastModifiedTime(Path.of(properties.getFile())).toMillis();
+            if (lastModified != fileLastModified) {
+                reload();
+            }
+        } catch (IOException | RuntimeException e) {
+            log.error("Failed to reload JWT keyring from {}, keeping the current keys", properties.getFile(), e);
+        }
+    }
+
+    public void reload() {
+        Snapshot previous = snapshot;
+        Snapshot next = load();
+        snapshot = next;
+        if (!next.keys().keySet().containsAll(previous.keys().keySet())) {
+            // Tokens signed by a removed key must not keep passing on the strength of an earlier verification.
+            verifiedTokenCache.invalidateAll();
+        }
+        log.info("Loaded JWT keyring with keys {}, active key {}", next.keys().keySet(), next.active().id());
+    }
+
+    private Snapshot load() {
+        String activeKeyId = properties.getActiveKeyId();
+        Map<String, String> encodedKeys = properties.getKeys();
+
+        if (StringUtils.hasText(properties.getFile())) {
+            Properties fileProperties = readFile(Path.of(properties.getFile()));
+            activeKeyId = fileProperties.getProperty("active-key-id");
+            encodedKeys = new HashMap<>();
+            for (String name : fileProperties.stringPropertyNames()) {
+                if (name.startsWith(KEY_PREFIX)) {
+                    encodedKeys.put(name.substring(KEY_PREFIX.length()), fileProperties.getProperty(name));
+                }
+            }
+        }
+
+        if (encodedKeys.isEmpty()) {
+            log.warn("No JWT signing keys configured; using a random key. Tokens will not survive a restart "
+                    + "and will not validate on other nodes.");
+            SigningKey ephemeral = new SigningKey("ephemeral", Keys.secretKeyFor(SignatureAlgorithm.HS256));
+            return new Snapshot(Map.of(ephemeral.id(), ephemeral.key()), ephemeral);
+        }
+
+        Map<String, SecretKey> keys = new HashMap<>();
+        encodedKeys.forEach((id, encoded) -> keys.put(id, Keys.hmacShaKeyFor(Decoders.BASE64.decode(encoded.trim()))));
+
+        SecretKey activeKey = activeKeyId == null ? null : keys.get(activeKeyId);
+        if (activeKey == null) {
+            throw new IllegalStateException("JWT active key id '" + activeKeyId + "' is not in the keyring");
+        }
+        return new Snapshot(Map.copyOf(keys), new SigningKey(activeKeyId, activeKey));
+    }
+
+    private Properties readFile(Path path) {
+        try (InputStream in = Files.newInputStream(path)) {
+            Properties fileProperties = new Properties();
+            fileProperties.load(in);
+            fileLastModified = Files.getLastModifiedTime(path).toMillis();
+            return fileProperties;
+        } catch (IOException e) {
+            throw new IllegalStateException("Cannot read JWT keyring file " + path, e);
+        }
+    }
+
+    public record SigningKey(String id, SecretKey key) {}
+
+    private record Snapshot(Map<String, SecretKey> keys, SigningKey active) {}
+}
@@ -0,0 +1,28 @@
+package com.example.security;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Signing keys shared by every node, either inline ({@code jwt.keyring.keys}) or from a properties file
+ * ({@code jwt.keyring.file}) that is re-read while the application runs.
+ */
+@Component
+@ConfigurationProperties(prefix = "jwt.keyring")
+@Getter @Setter
+public class JwtKeyringProperties {
+
+    /** Key id used to sign new tokens. */
+    private String activeKeyId;
+
+    /** Base64-encoded HMAC secrets (at least 256 bits) by key id. */
+    private Map<String, String> keys = new LinkedHashMap<>();
+
+    /** Optional properties file with {@code active-key-id=...} and {@code keys.<kid>=...} entries. */
+    private String file;
+}
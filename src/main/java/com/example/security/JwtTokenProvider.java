@@ -1,61 +1,185 @@
 package com.example.security;
 
 import io.jsonwebtoken.*;
-import io.jsonwebtoken.security.Keys;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.stereotype.Component;
 
 import java.security.Key;
+import java.time.Duration;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.Map;
-import java.util.function.Function;
+import java.util.Set;
+import java.util.UUID;
 
 @Component
 public class JwtTokenProvider {
 
-    private final Key key = Keys.secretKeyFor(SignatureAlgorithm.HS256);
-    private static final long JWT_TOKEN_VALIDITY = 24 * 60 * 60 * 1000; // 24 hours
+    public static final String TOKEN_TYPE_CLAIM = "typ";
+    public static final String FAMILY_CLAIM = "fam";
+    public static final String EPOCH_CLAIM = "ep";
+    public static final String ROLES_CLAIM = "rl";
+    public static final String REFRESH_TOKEN_TYPE = "refresh";
+
+    private final JwtKeyring keyring;
+    private final JwtParser jwtParser;
+    private final VerifiedTokenCache verifiedTokenCache;
+    // Null when jwt.compact-verifier.enabled is off; every token then goes through jjwt.
+    private final CompactTokenVerifier compactVerifier;
+    private final Duration accessTokenValidity;
+    private final Duration refreshTokenValidity;
+
+    public JwtTokenProvider(JwtKeyring keyring,
+                            VerifiedTokenCache verifiedTokenCache,
+                            @Value("${jwt.access-token-validity:15m}") Duration accessTokenValidity,
+                            @Value("${jwt.refresh-token-validity:14d}") Duration refreshTokenValidity,
+                            @Value("${jwt.compact-verifier.enabled:true}") boolean compactVerifierEnabled) {
+        this.keyring = keyring;
+        this.verifiedTokenCache = verifiedTokenCache;
+        this.compactVerifier = compactVerifierEnabled ? new CompactTokenVerifier(keyring) : null;
+        this.accessTokenValidity = accessTokenValidity;
+        this.refreshTokenValidity = refreshTokenValidity;
+        this.jwtParser = Jwts.parserBuilder()
+                .setSigningKeyResolver(new SigningKeyResolverAdapter() {
+                    @Override
+                    public Key resolveSigningKey(JwsHeader header, Claims claims) {
+                        return keyring.verificationKey(header.getKeyId());
+                    }
+                })
+                .build();
+    }
 
     public String generateToken(String userId) {
+        return generateToken(userId, 0);
+    }
+
+    /**
+     * Issues an access token bound to the user's current token epoch; see {@link TokenRevocationService}.
+     */
+    public String generateToken(String userId, int tokenEpoch) {
+        return generateToken(userId, tokenEpoch, Set.of(Role.USER));
+    }
+
+    /**
+     * Issues an access token carrying the user's roles as a bit mask; see {@link Role}.
+     */
+    public String generateToken(String userId, int tokenEpoch, Set<Role> roles) {
+        Map<String, Object> claims = new HashMap<>();
+        claims.put(Claims.ID, UUID.randomUUID().toString());
+        claims.put(EPOCH_CLAIM, tokenEpoch);
+        claims.put(ROLES_CLAIM, Role.toMask(roles));
+        return createToken(claims, userId, accessTokenValidity);
+    }
+
+    /**
+     * The refresh token carries the roles too, so a refresh can re-issue them without reading the user.
+     * That is safe because changing a user's roles bumps their epoch, which revokes the refresh token.
+     */
+    public String generateRefreshToken(String userId, String familyId, String tokenId, int tokenEpoch,
+                                       Set<Role> roles) {
         Map<String, Object> claims = new HashMap<>();
-        return createToken(claims, userId);
+        claims.put(TOKEN_TYPE_CLAIM, REFRESH_TOKEN_TYPE);
+        claims.put(EPOCH_CLAIM, tokenEpoch);
+        claims.put(ROLES_CLAIM, Role.toMask(roles));
+        claims.put(FAMILY_CLAIM, familyId);
+        claims.put(Claims.ID, tokenId);
+        return createToken(claims, userId, refreshTokenValidity);
+    }
+
+    public Duration getRefreshTokenValidity() {
+        return refreshTokenValidity;
     }
 
-    private String createToken(Map<String, Object> claims, String subject) {
+    private String createToken(Map<String, Object> claims, String subject, Duration validity) {
+        JwtKeyring.SigningKey signingKey = keyring.activeKey();
+        long now = System.currentTimeMillis();
         return Jwts.builder()
+                .setHeaderParam(JwsHeader.KEY_ID, signingKey.id())
                 .setClaims(claims)
                 .setSubject(subject)
-                .setIssuedAt(new Date(System.currentTimeMillis()))
-                .setExpiration(new Date(System.currentTimeMillis() + JWT_TOKEN_VALIDITY))
-                .signWith(key)
+                .setIssuedAt(new Date(now))
+                .setExpiration(new Date(now + validity.toMillis()))
+                .signWith(signingKey.key())
                 .compact();
     }
 
+    /**
+     * Verifies the token's signature and expiration and returns its claims, parsing the token only once.
+     * Tokens in the exact format we issue are checked by {@link CompactTokenVerifier}; anything else, and every
+     * token while it is disabled, goes through the verified-token cache and jjwt.
+     *
+     * @throws JwtException if the token is malformed, expired or not signed by us
+     * @throws IllegalArgumentException if the token is null or empty
+     */
+    public Claims verifyToken(String token) {
+        return verifyToken(token, 0);
+    }
+
+    private Claims verifyToken(String source, int offset) {
+        if (compactVerifier != null && source != null) {
+            Claims claims = compactVerifier.verify(source, offset);
+            if (claims != null) {
+                return claims;
+            }
+        }
+        String token = offset == 0 ? source : source.substring(offset);
+        Claims cached = verifiedTokenCache.get(token);
+        if (cached != null) {
+            return cached;
+        }
+        Claims claims = jwtParser.parseClaimsJws(token).getBody();
+        verifiedTokenCache.put(token, claims);
+        return claims;
+    }
+
+    /**
+     * Verifies a token and rejects it unless it is an access token.
+     */
+    public Claims verifyAccessToken(String token) {
+        return verifyAccessToken(token, 0);
+    }
+
+    /**
+     * Verifies the access token that starts at {@code offset} in {@code source}, such as an Authorization header
+     * after its scheme, without copying it out unless it has to fall back to jjwt.
+     */
+    public Claims verifyAccessToken(String source, int offset) {
+        Claims claims = verifyToken(source, offset);
+        if (REFRESH_TOKEN_TYPE.equals(claims.get(TOKEN_TYPE_CLAIM))) {
+            throw new UnsupportedJwtException("Refresh tokens cannot be used for API access");
+        }
+        return claims;
+    }
+
+    /**
+     * Verifies a token and rejects it unless it is a refresh token.
+     */
+    public Claims verifyRefreshToken(String token) {
+        Claims claims = jwtParser.parseClaimsJws(token).getBody();
+        if (!REFRESH_TOKEN_TYPE.equals(claims.get(TOKEN_TYPE_CLAIM))) {
+            throw new UnsupportedJwtException("Not a refresh token");
+        }
+        return claims;
+    }
+
+    /**
+     * Returns the role mask of verified claims. Tokens issued before roles existed count as {@link Role#USER}.
+     */
+    public static int roleMask(Claims claims) {
+        Integer mask = claims.get(ROLES_CLAIM, Integer.class);
+        return mask != null ? mask : Role.USER.bit();
+    }
+
     public String getUserIdFromToken(String token) {
-        return getClaimFromToken(token, Claims::getSubject);
+        return verifyToken(token).getSubject();
     }
 
     public boolean validateToken(String token) {
         try {
-            Jwts.parserBuilder().setSigningKey(key).build().parseClaimsJws(token);
+            verifyToken(token);
             return true;
         } catch (JwtException | IllegalArgumentException e) {
             return false;
         }
     }
-
-    private <T> T getClaimFromToken(String token, Function<Claims, T> claimsResolver) {
-        final Claims claims = getAllClaimsFromToken(token);
-        return claimsResolver.apply(claims);
-    }
-
-    private Claims getAllClaimsFromToken(String token) {
-        return Jwts.parserBuilder()
-                .setSigningKey(key)
-                .build()
-                .parseClaimsJws(token)
-                .getBody();
-    }
 }
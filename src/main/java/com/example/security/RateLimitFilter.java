@@ -0,0 +1,263 @@
+package com.example.security;
+
+import com.example.common.ApiException;
+import com.example.common.ServiceBusyException;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ReadListener;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.ServletInputStream;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletRequestWrapper;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.servlet.HandlerExceptionResolver;
+import org.springframework.web.util.UrlPathHelper;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throttles the configured endpoints per client IP and per {@code userId} before the request reaches
+ * the controller, so a rejected request costs neither JSON binding nor BCrypt. Rejections are answered with
+ * 429 and {@code Retry-After}. Endpoints with a per-account limit have their body buffered to read the
+ * {@code userId}, up to {@code max-body-size}; a larger body is refused with 413 without being read further.
+ *
+ * <p>Buckets live in a size-bounded cache that drops idle keys; see {@link TokenBucket}.
+ */
+public class RateLimitFilter extends OncePerRequestFilter {
+
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+    // Longer ids fail validation anyway; they are not worth a bucket.
+    private static final int MAX_ACCOUNT_KEY_LENGTH = 64;
+
+    private final Map<String, EndpointLimiter> limiters = new HashMap<>();
+    private final Cache<String, TokenBucket> buckets;
+    private final HandlerExceptionResolver handlerExceptionResolver;
+    private final int maxBodySize;
+
+    public RateLimitFilter(RateLimitProperties properties,
+                           MeterRegistry meterRegistry,
+                           HandlerExceptionResolver handlerExceptionResolver) {
+        this.handlerExceptionResolver = handlerExceptionResolver;
+        this.maxBodySize = Math.toIntExact(properties.getMaxBodySize().toBytes());
+        this.buckets = Caffeine.newBuilder()
+                .maximumSize(properties.getMaxBuckets())
+                .expireAfterAccess(properties.getIdleTimeout())
+                .build();
+        if (properties.isEnabled()) {
+            properties.getEndpoints().forEach((path, limits) ->
+                    limiters.put(path, new EndpointLimiter(path, limits, meterRegistry)));
+        }
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !limiters.containsKey(pathWithinApplication(request));
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        EndpointLimiter limiter = limiters.get(pathWithinApplication(request));
+        long now = System.nanoTime();
+
+        long wait = limiter.acquire("ip:" + request.getRemoteAddr(), limiter.perIp, now);
+        if (wait == 0 && limiter.perAccount != null) {
+            byte[] body = readBody(request);
+            if (body == null) {
+                limiter.tooLarge.increment();
+                handlerExceptionResolver.resolveException(request, response, null,
+                        ApiException.of(HttpStatus.PAYLOAD_TOO_LARGE, "Request body is too large"));
+                return;
+            }
+            request = new CachedBodyRequest(request, body);
+            String userId = readUserId(body);
+            if (userId != null && userId.length() <= MAX_ACCOUNT_KEY_LENGTH) {
+                wait = limiter.acquire("account:" + userId, limiter.perAccount, now);
+            }
+        }
+
+        if (wait > 0) {
+            limiter.rejected.increment();
+            long retryAfterSeconds = Math.max(1, TimeUnit.NANOSECONDS.toSeconds(wait + TimeUnit.SECONDS.toNanos(1) - 1));
+            handlerExceptionResolver.resolveException(request, response, null,
+                    ServiceBusyException.tooManyRequests("Too many requests, please retry later", retryAfterSeconds));
+            return;
+        }
+        limiter.admitted.increment();
+        filterChain.doFilter(request, response);
+    }
+
+    // Decoded and without ;parameters, as the handler mapping sees it: /auth/%6Cogin is the login endpoint too.
+    private static String pathWithinApplication(HttpServletRequest request) {
+        return UrlPathHelper.defaultInstance.getPathWithinApplication(request);
+    }
+
+    /**
+     * Reads the whole body if it fits in {@code maxBodySize}, stopping after one byte more than that when no or
+     * a wrong Content-Length was sent.
+     *
+     * @return the body, or {@code null} if it is too large
+     */
+    private byte[] readBody(HttpServletRequest request) throws IOException {
+        long declared = request.getContentLengthLong();
+        if (declared > maxBodySize) {
+            return null;
+        }
+        byte[] buffer = new byte[declared >= 0 ? (int) declared + 1 : Math.min(maxBodySize + 1, 1024)];
+        int length = 0;
+        InputStream input = request.getInputStream();
+        while (true) {
+            if (length == buffer.length) {
+                if (length > maxBodySize) {
+                    return null;
+                }
+                buffer = Arrays.copyOf(buffer, Math.min(buffer.length * 2, maxBodySize + 1));
+            }
+            int read = input.read(buffer, length, buffer.length - length);
+            if (read < 0) {
+                return Arrays.copyOf(buffer, length);
+            }
+            length += read;
+        }
+    }
+
+    // Pulls the top-level "userId" string out of the body with the streaming parser; anything unparsable is
+    // left for the controller to reject.
+    private static String readUserId(byte[] body) {
+        try (JsonParser parser = JSON_FACTORY.createParser(body)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                return null;
+            }
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.getCurrentName();
+                JsonToken value = parser.nextToken();
+                if ("userId".equals(field) && value == JsonToken.VALUE_STRING) {
+                    return parser.getText();
+                }
+                parser.skipChildren();
+            }
+        } catch (IOException e) {
+            // fall through
+        }
+        return null;
+    }
+
+    private class EndpointLimiter {
+        private final String path;
+        private final Rate perIp;
+        private final Rate perAccount;
+        private final Counter admitted;
+        private final Counter rejected;
+        private final Counter tooLarge;
+
+        EndpointLimiter(String path, RateLimitProperties.EndpointLimits limits, MeterRegistry meterRegistry) {
+            this.path = path;
+            this.perIp = Rate.of(limits.getPerIp());
+            this.perAccount = Rate.of(limits.getPerAccount());
+            this.admitted = Counter.builder("auth.rate-limit.requests")
+                    .description("Requests checked against the auth rate limits")
+                    .tag("endpoint", path).tag("outcome", "admitted")
+                    .register(meterRegistry);
+            this.rejected = Counter.builder("auth.rate-limit.requests")
+                    .description("Requests checked against the auth rate limits")
+                    .tag("endpoint", path).tag("outcome", "rejected")
+                    .register(meterRegistry);
+            this.tooLarge = Counter.builder("auth.rate-limit.requests")
+                    .description("Requests checked against the auth rate limits")
+                    .tag("endpoint", path).tag("outcome", "too_large")
+                    .register(meterRegistry);
+        }
+
+        long acquire(String key, Rate rate, long now) {
+            if (rate == null) {
+                return 0;
+            }
+            return buckets.get(path + '|' + key, ignored -> new TokenBucket())
+                    .tryAcquire(now, rate.intervalNanos, rate.burstNanos);
+        }
+    }
+
+    private record Rate(long intervalNanos, long burstNanos) {
+        static Rate of(RateLimitProperties.Limit limit) {
+            if (limit == null || limit.getCapacity() <= 0) {
+                return null;
+            }
+            long interval = limit.getPeriod().toNanos() / limit.getCapacity();
+            return new Rate(interval, interval * limit.getCapacity());
+        }
+    }
+
+    /**
+     * Buffers the body so it can be inspected here and still be read by the controller.
+     */
+    private static class CachedBodyRequest extends HttpServletRequestWrapper {
+        private final byte[] body;
+
+        CachedBodyRequest(HttpServletRequest request, byte[] body) {
+            super(request);
+            this.body = body;
+        }
+
+        @Override
+        public ServletInputStream getInputStream() {
+            ByteArrayInputStream input = new ByteArrayInputStream(body);
+            return new ServletInputStream() {
+                @Override
+                public int read() {
+                    return input.read();
+                }
+
+                @Override
+                public int read(byte[] b, int off, int len) {
+                    return input.read(b, off, len);
+                }
+
+                @Override
+                public boolean isFinished() {
+                    return input.available() == 0;
+                }
+
+                @Override
+                public boolean isReady() {
+                    return true;
+                }
+
+                // The whole body is already in memory, so it is available at once and then fully read.
+                @Override
+                public void setReadListener(ReadListener listener) {
+                    try {
+                        listener.onDataAvailable();
+                        listener.onAllDataRead();
+                    } catch (IOException e) {
+                        listener.onError(e);
+                    }
+                }
+            };
+        }
+
+        @Override
+        public BufferedReader getReader() {
+            String encoding = getCharacterEncoding();
+            return new BufferedReader(new InputStreamReader(getInputStream(),
+                    encoding != null ? Charset.forName(encoding) : StandardCharsets.UTF_8));
+        }
+    }
+}
@@ -0,0 +1,54 @@
+package com.example.security;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Token-bucket limits for the unauthenticated endpoints, keyed by path below the context path
+ * (for example {@code /api/auth/login}).
+ */
+@Component
+@ConfigurationProperties(prefix = "auth.rate-limit")
+@Getter @Setter
+public class RateLimitProperties {
+
+    private boolean enabled = true;
+
+    /** Upper bound on buckets held in memory across all endpoints and keys. */
+    private long maxBuckets = 100_000;
+
+    /** Buckets untouched for this long are dropped; a dropped bucket starts full again. */
+    private Duration idleTimeout = Duration.ofMinutes(10);
+
+    /**
+     * Largest body buffered to read the {@code userId} of a per-account limit. Larger bodies are refused with 413
+     * before they are read; a login body is well under a hundred bytes.
+     */
+    private DataSize maxBodySize = DataSize.ofKilobytes(4);
+
+    private Map<String, EndpointLimits> endpoints = new LinkedHashMap<>();
+
+    @Getter @Setter
+    public static class EndpointLimits {
+        /** Limit per client IP address, or {@code null} for none. */
+        private Limit perIp;
+        /** Limit per {@code userId} named in the request body, or {@code null} for none. */
+        private Limit perAccount;
+    }
+
+    /**
+     * Allows bursts of up to {@code capacity} requests, refilled at {@code capacity} per {@code period}.
+     */
+    @Getter @Setter
+    public static class Limit {
+        private int capacity;
+        private Duration period = Duration.ofMinutes(1);
+    }
+}
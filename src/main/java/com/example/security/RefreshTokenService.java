@@ -0,0 +1,102 @@
+package com.example.security;
+
+import com.example.common.ApiException;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtException;
+import lombok.RequiredArgsConstructor;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Issues access/refresh token pairs and rotates refresh tokens.
+ * A refresh costs one HMAC verification and one conditional UPDATE; no password hashing is involved.
+ */
+@Service
+@RequiredArgsConstructor
+public class RefreshTokenService {
+
+    private final RefreshTokenRepository refreshTokenRepository;
+    private final JwtTokenProvider jwtTokenProvider;
+    private final TokenRevocationService tokenRevocationService;
+
+    /**
+     * Starts a new refresh-token family. {@code tokenEpoch} and {@code roles} are as stored in the database.
+     */
+    @Transactional
+    public Map<String, String> issueTokens(String userId, int tokenEpoch, Set<Role> roles) {
+        tokenRevocationService.updateTokenEpoch(userId, tokenEpoch);
+        String familyId = UUID.randomUUID().toString();
+        String tokenId = UUID.randomUUID().toString();
+
+        RefreshToken refreshToken = new RefreshToken();
+        refreshToken.setFamilyId(familyId);
+        refreshToken.setUserId(userId);
+        refreshToken.setCurrentTokenId(tokenId);
+        refreshToken.setExpiresAt(nextExpiry());
+        refreshTokenRepository.save(refreshToken);
+
+        return tokenPair(userId, familyId, tokenId, tokenEpoch, roles);
+    }
+
+    @Transactional(noRollbackFor = ApiException.class)
+    public Map<String, String> refresh(String token) {
+        Claims claims;
+        try {
+            claims = jwtTokenProvider.verifyRefreshToken(token);
+        } catch (JwtException | IllegalArgumentException e) {
+            throw ApiException.unauthorized("Invalid refresh token");
+        }
+        if (tokenRevocationService.isRevoked(claims)) {
+            throw ApiException.unauthorized("Refresh token has been revoked");
+        }
+
+        String userId = claims.getSubject();
+        String familyId = claims.get(JwtTokenProvider.FAMILY_CLAIM, String.class);
+        String nextTokenId = UUID.randomUUID().toString();
+
+        int rotated = refreshTokenRepository.rotate(familyId, claims.getId(), nextTokenId, nextExpiry());
+        if (rotated == 0) {
+            // The token was validly signed but is no longer current: it was already used, so the family
+            // may have leaked. Revoke it so neither the attacker nor the client can keep refreshing.
+            refreshTokenRepository.revokeFamily(familyId);
+            throw ApiException.unauthorized("Refresh token has already been used");
+        }
+
+        return tokenPair(userId, familyId, nextTokenId, tokenRevocationService.currentEpoch(userId),
+                Role.fromMask(JwtTokenProvider.roleMask(claims)));
+    }
+
+    @Transactional
+    @Scheduled(fixedDelayString = "${jwt.refresh-token-cleanup-interval-ms:3600000}")
+    public void deleteExpiredTokens() {
+        refreshTokenRepository.deleteExpired(LocalDateTime.now());
+    }
+
+    @Transactional
+    public void revokeFamily(String token) {
+        try {
+            Claims claims = jwtTokenProvider.verifyRefreshToken(token);
+            refreshTokenRepository.revokeFamily(claims.get(JwtTokenProvider.FAMILY_CLAIM, String.class));
+        } catch (JwtException | IllegalArgumentException e) {
+            throw ApiException.badRequest("Invalid refresh token");
+        }
+    }
+
+    private Map<String, String> tokenPair(String userId, String familyId, String tokenId, int tokenEpoch,
+                                          Set<Role> roles) {
+        return Map.of(
+                "token", jwtTokenProvider.generateToken(userId, tokenEpoch, roles),
+                "refreshToken", jwtTokenProvider.generateRefreshToken(userId, familyId, tokenId, tokenEpoch, roles)
+        );
+    }
+
+    private LocalDateTime nextExpiry() {
+        return LocalDateTime.now().plus(jwtTokenProvider.getRefreshTokenValidity());
+    }
+}
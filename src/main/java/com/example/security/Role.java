@@ -0,0 +1,104 @@
+package com.example.security;
+
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * A user's roles and the authorities each one grants.
+ *
+ * <p>Tokens carry roles as a bit mask in the {@link JwtTokenProvider#ROLES_CLAIM} claim, so authorizing a request
+ * needs no database lookup. The authority list for every possible mask is built once here and shared by all
+ * requests. Changing a user's roles bumps their token epoch, which revokes tokens carrying the old roles.
+ */
+public enum Role {
+
+    USER,
+    ADMIN(Role.USERS_READ, Role.USERS_IMPORT, Role.METRICS_READ);
+
+    /** Listing and exporting other users. */
+    public static final String USERS_READ = "users:read";
+    /** Creating users in bulk through the import endpoint. */
+    public static final String USERS_IMPORT = "users:import";
+    /** Scraping metrics when the actuator shares the public port. */
+    public static final String METRICS_READ = "metrics:read";
+
+    private static final Role[] VALUES = values();
+    private static final int ALL = (1 << VALUES.length) - 1;
+    private static final List<List<GrantedAuthority>> AUTHORITIES_BY_MASK = authoritiesByMask();
+
+    private final String[] permissions;
+
+    Role(String... permissions) {
+        this.permissions = permissions;
+    }
+
+    public int bit() {
+        return 1 << ordinal();
+    }
+
+    public String authority() {
+        return "ROLE_" + name();
+    }
+
+    public static int toMask(Collection<Role> roles) {
+        int mask = 0;
+        for (Role role : roles) {
+            mask |= role.bit();
+        }
+        return mask;
+    }
+
+    public static Set<Role> fromMask(int mask) {
+        Set<Role> roles = EnumSet.noneOf(Role.class);
+        for (Role role : VALUES) {
+            if ((mask & role.bit()) != 0) {
+                roles.add(role);
+            }
+        }
+        return roles;
+    }
+
+    /**
+     * Returns the shared, unmodifiable authority list for a mask. Bits of unknown roles are ignored.
+     */
+    public static List<GrantedAuthority> authorities(int mask) {
+        return AUTHORITIES_BY_MASK.get(mask & ALL);
+    }
+
+    private static List<List<GrantedAuthority>> authoritiesByMask() {
+        // One instance per authority string, shared between every mask that grants it.
+        List<GrantedAuthority> roleAuthorities = new ArrayList<>();
+        List<List<GrantedAuthority>> permissionAuthorities = new ArrayList<>();
+        for (Role role : VALUES) {
+            roleAuthorities.add(new SimpleGrantedAuthority(role.authority()));
+            List<GrantedAuthority> permissions = new ArrayList<>();
+            for (String permission : role.permissions) {
+                permissions.add(new SimpleGrantedAuthority(permission));
+            }
+            permissionAuthorities.add(permissions);
+        }
+
+        List<List<GrantedAuthority>> byMask = new ArrayList<>(ALL + 1);
+        for (int mask = 0; mask <= ALL; mask++) {
+            List<GrantedAuthority> authorities = new ArrayList<>();
+            for (Role role : VALUES) {
+                if ((mask & role.bit()) != 0) {
+                    authorities.add(roleAuthorities.get(role.ordinal()));
+                    for (GrantedAuthority permission : permissionAuthorities.get(role.ordinal())) {
+                        if (!authorities.contains(permission)) {
+                            authorities.add(permission);
+                        }
+                    }
+                }
+            }
+            byMask.add(List.copyOf(authorities));
+        }
+        return List.copyOf(byMask);
+    }
+}
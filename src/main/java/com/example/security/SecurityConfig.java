@@ -1,9 +1,22 @@
 package com.example.security;
 
+import com.example.common.ApiException;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.DispatcherType;
 import lombok.RequiredArgsConstructor;
+import org.springframework.boot.actuate.autoconfigure.security.servlet.EndpointRequest;
+import org.springframework.boot.actuate.autoconfigure.web.server.ManagementPortType;
+import org.springframework.boot.actuate.health.HealthEndpoint;
+import org.springframework.boot.actuate.metrics.export.prometheus.PrometheusScrapeEndpoint;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
 import org.springframework.security.authentication.AuthenticationManager;
+import org.springframework.security.authorization.AuthorityAuthorizationManager;
+import org.springframework.security.authorization.AuthorizationDecision;
 import org.springframework.security.config.annotation.authentication.configuration.AuthenticationConfiguration;
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
 import org.springframework.security.config.annotation.web.configuration.EnableWebSecurity;
@@ -11,7 +24,9 @@ import org.springframework.security.config.http.SessionCreationPolicy;
 import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.security.web.SecurityFilterChain;
+import org.springframework.security.web.authentication.HttpStatusEntryPoint;
 import org.springframework.security.web.authentication.UsernamePasswordAuthenticationFilter;
+import org.springframework.web.servlet.HandlerExceptionResolver;
 
 @Configuration
 @EnableWebSecurity
@@ -19,6 +34,13 @@ import org.springframework.security.web.authentication.UsernamePasswordAuthentic
 public class SecurityConfig {
 
     private final JwtTokenProvider jwtTokenProvider;
+    private final TokenRevocationService tokenRevocationService;
+    private final RateLimitProperties rateLimitProperties;
+    private final MeterRegistry meterRegistry;
+    private final Environment environment;
+
+    @Qualifier("handlerExceptionResolver")
+    private final HandlerExceptionResolver handlerExceptionResolver;
 
     @Bean
     public SecurityFilterChain filterChain(HttpSecurity http) throws Exception {
@@ -26,11 +48,34 @@ public class SecurityConfig {
             .csrf(csrf -> csrf.disable())
             .sessionManagement(session -> session.sessionCreationPolicy(SessionCreationPolicy.STATELESS))
             .authorizeHttpRequests(auth -> auth
+                // Async dispatches resume a request that was already authorized on its initial dispatch.
+                .dispatcherTypeMatchers(DispatcherType.ASYNC).permitAll()
+                // Actuator first: on the management port the path patterns below cannot be matched, since they
+                // look up the application's DispatcherServlet.
+                .requestMatchers(EndpointRequest.to(HealthEndpoint.class)).permitAll()
+                // Open on the internal management port; on the public port only to holders of the permission.
+                .requestMatchers(EndpointRequest.to(PrometheusScrapeEndpoint.class)).access(
+                        ManagementPortType.get(environment) == ManagementPortType.DIFFERENT
+                                ? (authentication, context) -> new AuthorizationDecision(true)
+                                : AuthorityAuthorizationManager.hasAuthority(Role.METRICS_READ))
+                .requestMatchers(EndpointRequest.toAnyEndpoint()).denyAll()
+                .requestMatchers("/api/auth/logout", "/api/auth/logout-all").authenticated()
                 .requestMatchers("/api/auth/**").permitAll()
                 .requestMatchers("/api/h2-console/**").permitAll()
+                .requestMatchers(HttpMethod.POST, "/api/users/import").hasAuthority(Role.USERS_IMPORT)
+                .requestMatchers("/api/users/**").hasAuthority(Role.USERS_READ)
                 .anyRequest().authenticated()
             )
-            .addFilterBefore(new JwtAuthenticationFilter(jwtTokenProvider), 
+            .exceptionHandling(exceptions -> exceptions
+                .authenticationEntryPoint(new HttpStatusEntryPoint(HttpStatus.UNAUTHORIZED))
+                .accessDeniedHandler((request, response, e) -> handlerExceptionResolver.resolveException(
+                        request, response, null, ApiException.forbidden("Insufficient permissions")))
+            )
+            // Runs first so throttled requests are refused before anything else is done for them.
+            .addFilterBefore(new RateLimitFilter(rateLimitProperties, meterRegistry, handlerExceptionResolver),
+                           UsernamePasswordAuthenticationFilter.class)
+            .addFilterBefore(new JwtAuthenticationFilter(jwtTokenProvider, tokenRevocationService,
+                                   handlerExceptionResolver, meterRegistry),
                            UsernamePasswordAuthenticationFilter.class);
 
         // H2 콘솔 사용을 위한 설정
@@ -0,0 +1,33 @@
+package com.example.security;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Lock-free token bucket in its GCRA form: the whole state is the theoretical arrival time of the next request,
+ * advanced with a single CAS.
+ */
+class TokenBucket {
+
+    private final AtomicLong theoreticalArrival = new AtomicLong(Long.MIN_VALUE);
+
+    /**
+     * Takes one token.
+     *
+     * @param intervalNanos time to refill one token
+     * @param burstNanos    time to refill the whole bucket, i.e. {@code capacity * intervalNanos}
+     * @return 0 if the request is admitted, otherwise how many nanoseconds until a token is available
+     */
+    long tryAcquire(long now, long intervalNanos, long burstNanos) {
+        while (true) {
+            long current = theoreticalArrival.get();
+            long next = Math.max(current, now) + intervalNanos;
+            long wait = next - now - burstNanos;
+            if (wait > 0) {
+                return wait;
+            }
+            if (theoreticalArrival.compareAndSet(current, next)) {
+                return 0;
+            }
+        }
+    }
+}
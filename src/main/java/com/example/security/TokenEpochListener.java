@@ -0,0 +1,26 @@
+package com.example.security;
+
+import com.example.user.User;
+import jakarta.persistence.PostUpdate;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.stereotype.Component;
+
+/**
+ * Pushes a user's token epoch into {@link TokenRevocationService} whenever the entity is updated, so that locking
+ * or disabling a user revokes their tokens on this node immediately rather than at the next sync.
+ */
+@Component
+public class TokenEpochListener {
+
+    // Resolved lazily: entity listeners are created while the EntityManagerFactory the service depends on is built.
+    private final ObjectProvider<TokenRevocationService> tokenRevocationService;
+
+    public TokenEpochListener(ObjectProvider<TokenRevocationService> tokenRevocationService) {
+        this.tokenRevocationService = tokenRevocationService;
+    }
+
+    @PostUpdate
+    public void onUpdate(User user) {
+        tokenRevocationService.ifAvailable(service -> service.updateTokenEpoch(user.getUserId(), user.getTokenEpoch()));
+    }
+}
@@ -0,0 +1,158 @@
+package com.example.security;
+
+import com.example.common.BloomFilter;
+import com.example.user.UserRepository;
+import io.jsonwebtoken.Claims;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Answers "is this token revoked?" without touching the database.
+ *
+ * <p>Two mechanisms are checked on every request:
+ * <ul>
+ *   <li>a per-user token epoch, bumped by "log out everywhere", disabling or locking a user. Only users with a
+ *       non-zero epoch are held in memory; tokens carrying an older epoch are rejected.</li>
+ *   <li>individually revoked token ids (logout). A Bloom filter answers the common "not revoked" case in a few
+ *       hash probes; the exact set behind it removes false positives.</li>
+ * </ul>
+ * Both are loaded from the database at startup and re-synced periodically so revocations made on other nodes
+ * take effect within one sync interval.
+ */
+@Slf4j
+@Service
+public class TokenRevocationService {
+
+    private final RevokedTokenRepository revokedTokenRepository;
+    private final RefreshTokenRepository refreshTokenRepository;
+    private final UserRepository userRepository;
+    private final long expectedRevocations;
+    private final double falsePositiveRate;
+
+    private final Map<String, Integer> tokenEpochs = new ConcurrentHashMap<>();
+    private final Set<String> revokedTokenIds = ConcurrentHashMap.newKeySet();
+    private volatile BloomFilter revokedTokenFilter;
+    private volatile LocalDateTime lastSync;
+
+    public TokenRevocationService(RevokedTokenRepository revokedTokenRepository,
+                                  RefreshTokenRepository refreshTokenRepository,
+                                  UserRepository userRepository,
+                                  @Value("${jwt.revocation.expected-revocations:100000}") long expectedRevocations,
+                                  @Value("${jwt.revocation.false-positive-rate:0.01}") double falsePositiveRate) {
+        this.revokedTokenRepository = revokedTokenRepository;
+        this.refreshTokenRepository = refreshTokenRepository;
+        this.userRepository = userRepository;
+        this.expectedRevocations = expectedRevocations;
+        this.falsePositiveRate = falsePositiveRate;
+        this.revokedTokenFilter = new BloomFilter(expectedRevocations, falsePositiveRate);
+    }
+
+    @PostConstruct
+    public void loadFromDatabase() {
+        LocalDateTime now = LocalDateTime.now();
+        userRepository.findNonZeroTokenEpochs()
+                .forEach(view -> updateTokenEpoch(view.getUserId(), view.getTokenEpoch()));
+        List<String> active = revokedTokenRepository.findActiveTokenIds(now);
+        synchronized (this) {
+            revokedTokenIds.addAll(active);
+            rebuildFilter();
+        }
+        lastSync = now;
+        log.info("Loaded {} token epochs and {} revoked tokens", tokenEpochs.size(), revokedTokenIds.size());
+    }
+
+    public int currentEpoch(String userId) {
+        return tokenEpochs.getOrDefault(userId, 0);
+    }
+
+    public boolean isRevoked(Claims claims) {
+        Integer epoch = tokenEpochs.get(claims.getSubject());
+        if (epoch != null) {
+            Integer tokenEpoch = claims.get(JwtTokenProvider.EPOCH_CLAIM, Integer.class);
+            if (tokenEpoch == null || tokenEpoch < epoch) {
+                return true;
+            }
+        }
+        String tokenId = claims.getId();
+        return tokenId != null && revokedTokenFilter.mightContain(tokenId) && revokedTokenIds.contains(tokenId);
+    }
+
+    @Transactional
+    public void revokeToken(String tokenId, Date expiresAt) {
+        RevokedToken revokedToken = new RevokedToken();
+        revokedToken.setTokenId(tokenId);
+        revokedToken.setExpiresAt(LocalDateTime.ofInstant(expiresAt.toInstant(), ZoneId.systemDefault()));
+        revokedToken.setRevokedAt(LocalDateTime.now());
+        revokedTokenRepository.save(revokedToken);
+        addRevokedTokenId(tokenId);
+    }
+
+    /**
+     * Invalidates every access and refresh token issued to the user so far.
+     */
+    @Transactional
+    public void revokeAllTokens(String userId) {
+        userRepository.incrementTokenEpoch(userId);
+        userRepository.findTokenEpochByUserId(userId).ifPresent(epoch -> updateTokenEpoch(userId, epoch));
+        refreshTokenRepository.revokeAllForUser(userId);
+    }
+
+    /**
+     * Records the user's epoch as just read from the database, which is authoritative over the in-memory copy.
+     */
+    public void updateTokenEpoch(String userId, int epoch) {
+        if (epoch > 0) {
+            tokenEpochs.put(userId, epoch);
+        } else {
+            tokenEpochs.remove(userId);
+        }
+    }
+
+    @Transactional(readOnly = true)
+    @Scheduled(fixedDelayString = "${jwt.revocation.sync-interval-ms:5000}")
+    public void syncFromDatabase() {
+        // Overlap the previous window slightly so rows committed just before the last sync are not missed.
+        LocalDateTime since = lastSync.minusSeconds(5);
+        LocalDateTime now = LocalDateTime.now();
+        userRepository.findTokenEpochsUpdatedSince(since)
+                .forEach(view -> updateTokenEpoch(view.getUserId(), view.getTokenEpoch()));
+        revokedTokenRepository.findTokenIdsRevokedSince(since, now).forEach(this::addRevokedTokenId);
+        lastSync = now;
+    }
+
+    @Transactional
+    @Scheduled(fixedDelayString = "${jwt.revocation.purge-interval-ms:3600000}")
+    public void purgeExpired() {
+        LocalDateTime now = LocalDateTime.now();
+        revokedTokenRepository.deleteExpired(now);
+        List<String> active = revokedTokenRepository.findActiveTokenIds(now);
+        synchronized (this) {
+            revokedTokenIds.retainAll(Set.copyOf(active));
+            rebuildFilter();
+        }
+    }
+
+    private synchronized void addRevokedTokenId(String tokenId) {
+        revokedTokenIds.add(tokenId);
+        revokedTokenFilter.put(tokenId);
+    }
+
+    // Bloom filters cannot delete, so expired ids are dropped by building a fresh filter from the exact set.
+    private void rebuildFilter() {
+        BloomFilter filter = new BloomFilter(Math.max(expectedRevocations, revokedTokenIds.size() * 2L), falsePositiveRate);
+        revokedTokenIds.forEach(filter::put);
+        revokedTokenFilter = filter;
+    }
+}
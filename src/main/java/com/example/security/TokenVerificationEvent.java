@@ -0,0 +1,24 @@
+package com.example.security;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Access token verification in {@link JwtAuthenticationFilter}: signature, expiry and revocation checks.
+ * Disabled unless a recording enables it.
+ */
+@Name("com.example.auth.TokenVerification")
+@Label("Token Verification")
+@Description("Access token signature, expiry and revocation checks")
+@Category({"Application", "Authentication"})
+@Enabled(false)
+@StackTrace(false)
+public class TokenVerificationEvent extends jdk.jfr.Event {
+
+    @Label("Outcome")
+    String outcome;
+}
@@ -0,0 +1,101 @@
+package com.example.security;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import io.jsonwebtoken.Claims;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.Date;
+
+/**
+ * Bounded cache of tokens whose signature has already been verified.
+ * Entries are keyed by a SHA-256 digest of the compact token and never outlive the token's {@code exp}.
+ */
+@Component
+public class VerifiedTokenCache {
+
+    private final boolean enabled;
+    private final long maxTtlNanos;
+    private final Cache<TokenDigest, Claims> cache;
+
+    public VerifiedTokenCache(@Value("${jwt.verified-cache.enabled:false}") boolean enabled,
+                              @Value("${jwt.verified-cache.max-size:10000}") long maxSize,
+                              @Value("${jwt.verified-cache.ttl:5m}") Duration ttl) {
+        this.enabled = enabled;
+        this.maxTtlNanos = ttl.toNanos();
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfter(new ClaimsExpiry())
+                .build();
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public Claims get(String token) {
+        if (!enabled || token == null) {
+            return null;
+        }
+        Claims claims = cache.getIfPresent(digest(token));
+        if (claims != null && isExpired(claims)) {
+            return null;
+        }
+        return claims;
+    }
+
+    public void put(String token, Claims claims) {
+        if (!enabled || claims.getExpiration() == null || isExpired(claims)) {
+            return;
+        }
+        cache.put(digest(token), claims);
+    }
+
+    public void invalidateAll() {
+        cache.invalidateAll();
+    }
+
+    private static boolean isExpired(Claims claims) {
+        return !claims.getExpiration().after(new Date());
+    }
+
+    private static TokenDigest digest(String token) {
+        try {
+            byte[] hash = MessageDigest.getInstance("SHA-256").digest(token.getBytes(StandardCharsets.US_ASCII));
+            ByteBuffer buffer = ByteBuffer.wrap(hash);
+            return new TokenDigest(buffer.getLong(), buffer.getLong());
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
+    // The first 128 bits of the digest are plenty to key a cache that holds at most a few thousand tokens.
+    private record TokenDigest(long high, long low) {}
+
+    private class ClaimsExpiry implements Expiry<TokenDigest, Claims> {
+
+        @Override
+        public long expireAfterCreate(TokenDigest key, Claims claims, long currentTime) {
+            long untilExpiration = Duration.ofMillis(
+                    claims.getExpiration().getTime() - System.currentTimeMillis()).toNanos();
+            return Math.max(0, Math.min(maxTtlNanos, untilExpiration));
+        }
+
+        @Override
+        public long expireAfterUpdate(TokenDigest key, Claims claims, long currentTime, long currentDuration) {
+            return expireAfterCreate(key, claims, currentTime);
+        }
+
+        @Override
+        public long expireAfterRead(TokenDigest key, Claims claims, long currentTime, long currentDuration) {
+            return currentDuration;
+        }
+    }
+}
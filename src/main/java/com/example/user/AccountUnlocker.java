@@ -0,0 +1,88 @@
+package com.example.user;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Clears account locks that have outlived {@code users.lock.duration}, in batches of set-based updates.
+ *
+ * <p>Logins already treat an expired lock as lifted, so this only brings the stored state up to date; how soon it
+ * runs after a lock expires does not affect who can log in. Every node runs it; the updates are conditional, so
+ * overlapping sweeps unlock each account once.
+ */
+@Slf4j
+@Component
+public class AccountUnlocker {
+
+    private final UserRepository userRepository;
+    private final LoginStateCache loginStateCache;
+    private final TransactionTemplate transactionTemplate;
+    private final Duration lockDuration;
+    private final int batchSize;
+    private final Counter unlockedCounter;
+
+    public AccountUnlocker(UserRepository userRepository,
+                           LoginStateCache loginStateCache,
+                           TransactionTemplate transactionTemplate,
+                           MeterRegistry meterRegistry,
+                           @Value("${users.lock.duration:24h}") Duration lockDuration,
+                           @Value("${users.lock.unlock-batch-size:500}") int batchSize) {
+        this.userRepository = userRepository;
+        this.loginStateCache = loginStateCache;
+        this.transactionTemplate = transactionTemplate;
+        this.lockDuration = lockDuration;
+        this.batchSize = batchSize;
+        this.unlockedCounter = Counter.builder("users.lock.unlocked")
+                .description("Expired account locks cleared by the background sweep")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Unlocks every account whose lock has expired, one short transaction per batch.
+     *
+     * @return the number of accounts unlocked
+     */
+    // The first sweep waits one interval too: locks expiring meanwhile are already lifted at login time.
+    @Scheduled(initialDelayString = "${users.lock.unlock-interval-ms:60000}",
+               fixedDelayString = "${users.lock.unlock-interval-ms:60000}")
+    public int unlockExpired() {
+        LocalDateTime lockedBefore = LocalDateTime.now().minus(lockDuration);
+        int total = 0;
+        while (true) {
+            Integer unlocked = transactionTemplate.execute(status -> unlockBatch(lockedBefore));
+            total += unlocked;
+            // A short batch means the backlog is cleared, or another node took part of it; either way the next
+            // sweep picks up whatever is left.
+            if (unlocked < batchSize) {
+                break;
+            }
+        }
+        if (total > 0) {
+            unlockedCounter.increment(total);
+            log.info("Unlocked {} accounts whose lock expired", total);
+        }
+        return total;
+    }
+
+    private int unlockBatch(LocalDateTime lockedBefore) {
+        List<UserRepository.LockedUserView> expired =
+                userRepository.findExpiredLocks(lockedBefore, PageRequest.ofSize(batchSize));
+        if (expired.isEmpty()) {
+            return 0;
+        }
+        // Bulk updates bypass the entity listeners, so cached login state is dropped here.
+        expired.forEach(user -> loginStateCache.invalidate(user.getUserId()));
+        return userRepository.unlockExpired(expired.stream().map(UserRepository.LockedUserView::getId).toList(),
+                lockedBefore, LocalDateTime.now());
+    }
+}
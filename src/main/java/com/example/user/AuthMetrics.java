@@ -0,0 +1,129 @@
+package com.example.user;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.stereotype.Component;
+
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Times login and signup, per outcome and per stage, as Micrometer timers and as JFR events
+ * ({@link AuthRequestEvent}, {@link AuthStageEvent}). Every meter is registered up front, so recording one is a map
+ * lookup and a histogram update. While the JFR events are disabled, beginning and committing them does nothing.
+ * Histogram buckets are configured under {@code management.metrics.distribution} rather than here.
+ */
+@Component
+public class AuthMetrics {
+
+    enum LoginOutcome {
+        SUCCESS, BAD_CREDENTIALS, UNKNOWN_USER, LOCKED, DISABLED, BUSY, ERROR;
+
+        final String tag = name().toLowerCase(Locale.ROOT);
+    }
+
+    enum LoginStage {
+        LOOKUP, PASSWORD_CHECK, RECORD_FAILURE, TOKEN_ISSUE;
+
+        final String tag = name().toLowerCase(Locale.ROOT);
+    }
+
+    enum SignupOutcome {
+        SUCCESS, DUPLICATE_USER_ID, DUPLICATE_EMAIL, BUSY, ERROR;
+
+        final String tag = name().toLowerCase(Locale.ROOT);
+    }
+
+    enum SignupStage {
+        // QUEUE is only recorded by the asynchronous signup mode, for the wait before a worker picks a signup up.
+        QUEUE, HASH, INSERT;
+
+        final String tag = name().toLowerCase(Locale.ROOT);
+    }
+
+    private static final String LOGIN = "login";
+    private static final String SIGNUP = "signup";
+
+    private final Map<LoginOutcome, Timer> loginTimers;
+    private final Map<LoginStage, Timer> loginStageTimers;
+    private final Map<SignupOutcome, Timer> signupTimers;
+    private final Map<SignupStage, Timer> signupStageTimers;
+
+    public AuthMetrics(MeterRegistry meterRegistry) {
+        this.loginTimers = timers(LoginOutcome.class, "auth.login", "outcome",
+                "Login requests from start to response", meterRegistry);
+        this.loginStageTimers = timers(LoginStage.class, "auth.login.stage", "stage",
+                "Time spent in each stage of a login", meterRegistry);
+        this.signupTimers = timers(SignupOutcome.class, "auth.signup", "outcome",
+                "Signup requests from start to response", meterRegistry);
+        this.signupStageTimers = timers(SignupStage.class, "auth.signup.stage", "stage",
+                "Time spent in each stage of a signup", meterRegistry);
+    }
+
+    AuthRequestEvent startLogin() {
+        return startRequest(LOGIN);
+    }
+
+    AuthRequestEvent startSignup() {
+        return startRequest(SIGNUP);
+    }
+
+    AuthStageEvent start(LoginStage stage) {
+        return startStage(LOGIN, stage.tag, loginStageTimers.get(stage));
+    }
+
+    AuthStageEvent start(SignupStage stage) {
+        return startStage(SIGNUP, stage.tag, signupStageTimers.get(stage));
+    }
+
+    void end(AuthRequestEvent login, LoginOutcome outcome) {
+        endRequest(login, outcome.tag, loginTimers.get(outcome));
+    }
+
+    void end(AuthRequestEvent signup, SignupOutcome outcome) {
+        endRequest(signup, outcome.tag, signupTimers.get(outcome));
+    }
+
+    void end(AuthStageEvent stage) {
+        stage.timer.record(System.nanoTime() - stage.startedAt, TimeUnit.NANOSECONDS);
+        stage.commit();
+    }
+
+    private static AuthRequestEvent startRequest(String operation) {
+        AuthRequestEvent event = new AuthRequestEvent();
+        event.operation = operation;
+        event.begin();
+        event.startedAt = System.nanoTime();
+        return event;
+    }
+
+    private static AuthStageEvent startStage(String operation, String stage, Timer timer) {
+        AuthStageEvent event = new AuthStageEvent();
+        event.operation = operation;
+        event.stage = stage;
+        event.timer = timer;
+        event.begin();
+        event.startedAt = System.nanoTime();
+        return event;
+    }
+
+    private static void endRequest(AuthRequestEvent event, String outcome, Timer timer) {
+        timer.record(System.nanoTime() - event.startedAt, TimeUnit.NANOSECONDS);
+        event.outcome = outcome;
+        event.commit();
+    }
+
+    private static <E extends Enum<E>> Map<E, Timer> timers(Class<E> type, String name, String tag,
+                                                            String description, MeterRegistry meterRegistry) {
+        Map<E, Timer> timers = new EnumMap<>(type);
+        for (E value : type.getEnumConstants()) {
+            timers.put(value, Timer.builder(name)
+                    .description(description)
+                    .tag(tag, value.name().toLowerCase(Locale.ROOT))
+                    .register(meterRegistry));
+        }
+        return timers;
+    }
+}
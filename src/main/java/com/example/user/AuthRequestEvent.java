@@ -0,0 +1,30 @@
+package com.example.user;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * One login or signup, from the request thread to its completion on the hashing pool. Disabled unless a recording
+ * enables it, for example with {@code scripts/jfr/auth.jfc}.
+ */
+@Name("com.example.auth.Request")
+@Label("Auth Request")
+@Description("A login or signup from start to outcome")
+@Category({"Application", "Authentication"})
+@Enabled(false)
+@StackTrace(false)
+public class AuthRequestEvent extends jdk.jfr.Event {
+
+    @Label("Operation")
+    String operation;
+
+    @Label("Outcome")
+    String outcome;
+
+    // Micrometer timing runs whether or not the event is recorded; transient fields are not written to the recording.
+    transient long startedAt;
+}
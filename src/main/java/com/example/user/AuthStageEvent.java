@@ -0,0 +1,31 @@
+package com.example.user;
+
+import io.micrometer.core.instrument.Timer;
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * One stage of a login or signup, such as the user lookup or the password check. Disabled unless a recording
+ * enables it.
+ */
+@Name("com.example.auth.Stage")
+@Label("Auth Stage")
+@Description("One stage of a login or signup")
+@Category({"Application", "Authentication"})
+@Enabled(false)
+@StackTrace(false)
+public class AuthStageEvent extends jdk.jfr.Event {
+
+    @Label("Operation")
+    String operation;
+
+    @Label("Stage")
+    String stage;
+
+    transient long startedAt;
+    transient Timer timer;
+}
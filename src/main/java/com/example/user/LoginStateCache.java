@@ -0,0 +1,116 @@
+package com.example.user;
+
+import com.example.security.Role;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Function;
+
+/**
+ * Bounded read-through cache of the user state a login needs, keyed by user id.
+ *
+ * <p>Entries are dropped whenever the user row changes: entity writes are caught by {@link LoginStateCacheListener}, and
+ * {@link UserService} invalidates explicitly after its bulk updates, which bypass them. Invalidation is repeated
+ * after commit so a concurrent login cannot re-cache the pre-commit row. Changes made on other nodes are bounded
+ * by the TTL, except token epoch bumps, which {@link UserService} detects sooner.
+ */
+@Component
+public class LoginStateCache {
+
+    private final boolean enabled;
+    private final Cache<String, LoginState> cache;
+    // One token per user with a load in flight; invalidating the user drops it, which marks the load stale.
+    private final ConcurrentMap<String, Object> loads = new ConcurrentHashMap<>();
+
+    public LoginStateCache(MeterRegistry meterRegistry,
+                           @Value("${users.login-cache.enabled:false}") boolean enabled,
+                           @Value("${users.login-cache.max-size:10000}") long maxSize,
+                           @Value("${users.login-cache.ttl:1m}") Duration ttl) {
+        this.enabled = enabled;
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "users.login-state");
+    }
+
+    /**
+     * Returns the cached state, loading it on a miss. Absent users are not cached.
+     * The loader runs outside the cache's map lock: a JDBC call inside it would pin a virtual thread's carrier.
+     * Concurrent misses for one user may each load; a load that overlaps an invalidation of the same user is not
+     * cached, so it cannot re-insert a row read before the write that invalidated it. Loads of other users are not
+     * affected.
+     */
+    public LoginState get(String userId, Function<String, LoginState> loader) {
+        if (!enabled) {
+            return loader.apply(userId);
+        }
+        LoginState state = cache.getIfPresent(userId);
+        if (state == null) {
+            Object load = loads.computeIfAbsent(userId, ignored -> new Object());
+            try {
+                state = loader.apply(userId);
+            } finally {
+                LoginState loaded = state;
+                // Caches only if the token is still ours; under the map's lock, so an invalidation either
+                // happened before (token gone) or removes the entry after.
+                loads.computeIfPresent(userId, (key, current) -> {
+                    if (current == load && loaded != null) {
+                        cache.put(key, loaded);
+                    }
+                    return current == load ? null : current;
+                });
+            }
+        }
+        return state;
+    }
+
+    public void invalidate(String userId) {
+        loads.remove(userId);
+        cache.invalidate(userId);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    loads.remove(userId);
+                    cache.invalidate(userId);
+                }
+            });
+        }
+    }
+
+    public void invalidateAll() {
+        loads.clear();
+        cache.invalidateAll();
+    }
+
+    /**
+     * The columns read by a login, without timestamps or email.
+     */
+    public record LoginState(Long id,
+                             String userId,
+                             String password,
+                             boolean enabled,
+                             boolean accountNonLocked,
+                             int failedAttempt,
+                             LocalDateTime lockTime,
+                             int tokenEpoch,
+                             Set<Role> roles) {
+
+        public boolean isAccountLocked() {
+            return !accountNonLocked;
+        }
+    }
+}
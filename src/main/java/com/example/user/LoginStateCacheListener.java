@@ -0,0 +1,28 @@
+package com.example.user;
+
+import jakarta.persistence.PostPersist;
+import jakarta.persistence.PostRemove;
+import jakarta.persistence.PostUpdate;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.stereotype.Component;
+
+/**
+ * Drops a user's cached login state whenever the entity is inserted, updated or deleted.
+ */
+@Component
+public class LoginStateCacheListener {
+
+    // Hibernate creates its own listener instance, so the cache is looked up rather than held directly.
+    private final ObjectProvider<LoginStateCache> loginStateCache;
+
+    public LoginStateCacheListener(ObjectProvider<LoginStateCache> loginStateCache) {
+        this.loginStateCache = loginStateCache;
+    }
+
+    @PostPersist
+    @PostUpdate
+    @PostRemove
+    public void onChange(User user) {
+        loginStateCache.ifAvailable(cache -> cache.invalidate(user.getUserId()));
+    }
+}
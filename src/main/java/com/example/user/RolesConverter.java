@@ -0,0 +1,34 @@
+package com.example.user;
+
+import com.example.security.Role;
+import jakarta.persistence.AttributeConverter;
+import jakarta.persistence.Converter;
+
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Stores a user's roles as a comma-separated list of names, such as {@code USER,ADMIN}, in one column of the users
+ * row so that loading them for a login costs no extra query.
+ */
+@Converter
+public class RolesConverter implements AttributeConverter<Set<Role>, String> {
+
+    @Override
+    public String convertToDatabaseColumn(Set<Role> roles) {
+        return roles.stream().map(Role::name).collect(Collectors.joining(","));
+    }
+
+    @Override
+    public Set<Role> convertToEntityAttribute(String column) {
+        Set<Role> roles = EnumSet.noneOf(Role.class);
+        if (column != null && !column.isBlank()) {
+            for (String name : column.split(",")) {
+                roles.add(Role.valueOf(name.trim()));
+            }
+        }
+        return Collections.unmodifiableSet(roles);
+    }
+}
@@ -0,0 +1,249 @@
+package com.example.user;
+
+import com.example.common.ApiException;
+import com.example.common.ServiceBusyException;
+import com.example.user.AuthMetrics.SignupOutcome;
+import com.example.user.AuthMetrics.SignupStage;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Asynchronous signup mode ({@code auth.signup.async.enabled}): a signup is validated, queued and answered with
+ * 202 right away, and workers hash and commit queued signups in groups, one transaction per group.
+ *
+ * <p>Each worker takes whatever is queued, up to {@code batch-size}, so groups grow with the load and a lone signup
+ * is committed on its own. The queue is bounded; once it is full signups are refused with a 503 and
+ * {@code Retry-After}. A signup's status is served by {@link #status} for as long as it is pending; its outcome,
+ * including a user id or email found taken at commit time, is then kept in memory for {@code status-ttl}. Queued signups and statuses live on this
+ * node only: clients must poll the node that accepted them, and signups still queued when the node dies are lost.
+ * On shutdown the queue is drained for up to {@code shutdown-timeout}.
+ */
+@Slf4j
+@Component
+public class SignupQueue {
+
+    private static final long POLL_INTERVAL_MS = 100;
+
+    private final PasswordEncoder passwordEncoder;
+    private final UserBatchWriter userBatchWriter;
+    private final AuthMetrics authMetrics;
+    private final boolean enabled;
+    private final int batchSize;
+    private final long retryAfterSeconds;
+    private final Duration shutdownTimeout;
+    private final BlockingQueue<QueuedSignup> queue;
+    // Pending signups, bounded by the queue and the batches in hand; never evicted.
+    private final ConcurrentMap<String, UserDto.SignupStatus> pendingStatuses = new ConcurrentHashMap<>();
+    private final Cache<String, UserDto.SignupStatus> statuses;
+    private final ExecutorService workers;
+    private final Counter rejectedCounter;
+    private final DistributionSummary batchSizeSummary;
+    private volatile boolean closing;
+
+    public SignupQueue(PasswordEncoder passwordEncoder,
+                       UserBatchWriter userBatchWriter,
+                       AuthMetrics authMetrics,
+                       MeterRegistry meterRegistry,
+                       @Value("${auth.signup.async.enabled:false}") boolean enabled,
+                       @Value("${auth.signup.async.queue-capacity:1000}") int queueCapacity,
+                       @Value("${auth.signup.async.workers:0}") int workerCount,
+                       @Value("${auth.signup.async.batch-size:50}") int batchSize,
+                       @Value("${auth.signup.async.status-ttl:10m}") Duration statusTtl,
+                       @Value("${auth.signup.async.retry-after-seconds:1}") long retryAfterSeconds,
+                       @Value("${auth.signup.async.shutdown-timeout:30s}") Duration shutdownTimeout) {
+        this.passwordEncoder = passwordEncoder;
+        this.userBatchWriter = userBatchWriter;
+        this.authMetrics = authMetrics;
+        this.enabled = enabled;
+        this.batchSize = batchSize;
+        this.retryAfterSeconds = retryAfterSeconds;
+        this.shutdownTimeout = shutdownTimeout;
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+        // Completed signups only. Past this many within status-ttl, some outcomes are evicted early and polls for
+        // them get 404.
+        this.statuses = Caffeine.newBuilder()
+                .maximumSize(queueCapacity * 100L)
+                .expireAfterWrite(statusTtl)
+                .build();
+
+        Gauge.builder("auth.signup.queue.depth", queue, BlockingQueue::size)
+                .description("Signups waiting for a worker")
+                .register(meterRegistry);
+        this.rejectedCounter = Counter.builder("auth.signup.queue.rejected")
+                .description("Signups refused because the queue was full")
+                .register(meterRegistry);
+        this.batchSizeSummary = DistributionSummary.builder("auth.signup.batch.size")
+                .description("Signups committed together in one transaction")
+                .register(meterRegistry);
+
+        if (enabled) {
+            int threads = workerCount > 0 ? workerCount : Runtime.getRuntime().availableProcessors();
+            AtomicInteger threadNumber = new AtomicInteger();
+            this.workers = Executors.newFixedThreadPool(threads, runnable -> {
+                Thread thread = new Thread(runnable, "signup-worker-" + threadNumber.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
+            for (int i = 0; i < threads; i++) {
+                workers.execute(this::work);
+            }
+        } else {
+            this.workers = null;
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /** How long clients are told to wait before polling a pending signup or retrying a refused one. */
+    public long getRetryAfterSeconds() {
+        return retryAfterSeconds;
+    }
+
+    /**
+     * Queues a validated signup and returns its pending status.
+     *
+     * @throws ServiceBusyException if the queue is full or the node is shutting down
+     */
+    public UserDto.SignupStatus submit(UserDto.SignupRequest request) {
+        AuthRequestEvent signup = authMetrics.startSignup();
+        UserDto.SignupStatus pending = new UserDto.SignupStatus(UUID.randomUUID().toString(),
+                UserDto.SignupStatus.Status.PENDING, null);
+        pendingStatuses.put(pending.getId(), pending);
+        QueuedSignup queued = new QueuedSignup(pending.getId(), request, signup, authMetrics.start(SignupStage.QUEUE));
+        if (closing || !queue.offer(queued)) {
+            pendingStatuses.remove(pending.getId());
+            rejectedCounter.increment();
+            authMetrics.end(signup, SignupOutcome.BUSY);
+            throw new ServiceBusyException("Server is busy, please retry later", retryAfterSeconds);
+        }
+        return pending;
+    }
+
+    /**
+     * @throws ApiException with 404 if the id is unknown or its status has expired
+     */
+    public UserDto.SignupStatus status(String id) {
+        // Pending first: a completing signup is in the cache before it leaves the pending map.
+        UserDto.SignupStatus status = pendingStatuses.get(id);
+        if (status == null) {
+            status = statuses.getIfPresent(id);
+        }
+        if (status == null) {
+            throw ApiException.notFound("Signup not found");
+        }
+        return status;
+    }
+
+    private void work() {
+        List<QueuedSignup> batch = new ArrayList<>(batchSize);
+        while (true) {
+            QueuedSignup first;
+            try {
+                first = queue.poll(POLL_INTERVAL_MS, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            if (first == null) {
+                if (closing) {
+                    return;
+                }
+                continue;
+            }
+            batch.add(first);
+            queue.drainTo(batch, batchSize - 1);
+            try {
+                process(batch);
+            } catch (RuntimeException e) {
+                log.error("Failed to commit a batch of {} signups", batch.size(), e);
+                for (QueuedSignup signup : batch) {
+                    complete(signup, UserDto.SignupStatus.Status.FAILED, "Signup failed, please retry",
+                            SignupOutcome.ERROR);
+                }
+            }
+            batch.clear();
+        }
+    }
+
+    private void process(List<QueuedSignup> batch) {
+        batchSizeSummary.record(batch.size());
+        List<UserBatchWriter.NewUser> users = new ArrayList<>(batch.size());
+        for (QueuedSignup signup : batch) {
+            authMetrics.end(signup.queued());
+            AuthStageEvent hash = authMetrics.start(SignupStage.HASH);
+            UserDto.SignupRequest request = signup.request();
+            users.add(new UserBatchWriter.NewUser(request.getUserId(), request.getEmail(),
+                    passwordEncoder.encode(request.getPassword())));
+            authMetrics.end(hash);
+        }
+
+        AuthStageEvent insert = authMetrics.start(SignupStage.INSERT);
+        List<UserBatchWriter.Outcome> outcomes = userBatchWriter.insert(users);
+        authMetrics.end(insert);
+
+        for (int i = 0; i < batch.size(); i++) {
+            UserBatchWriter.Outcome outcome = outcomes.get(i);
+            switch (outcome) {
+                case INSERTED -> complete(batch.get(i), UserDto.SignupStatus.Status.COMPLETED, null,
+                        SignupOutcome.SUCCESS);
+                case DUPLICATE_USER_ID -> complete(batch.get(i), UserDto.SignupStatus.Status.REJECTED,
+                        outcome.reason, SignupOutcome.DUPLICATE_USER_ID);
+                case DUPLICATE_EMAIL -> complete(batch.get(i), UserDto.SignupStatus.Status.REJECTED,
+                        outcome.reason, SignupOutcome.DUPLICATE_EMAIL);
+                case FAILED -> complete(batch.get(i), UserDto.SignupStatus.Status.FAILED, outcome.reason,
+                        SignupOutcome.ERROR);
+            }
+        }
+    }
+
+    private void complete(QueuedSignup signup, UserDto.SignupStatus.Status status, String reason,
+                          SignupOutcome outcome) {
+        statuses.put(signup.id(), new UserDto.SignupStatus(signup.id(), status, reason));
+        pendingStatuses.remove(signup.id());
+        authMetrics.end(signup.signup(), outcome);
+    }
+
+    /**
+     * Stops accepting signups and lets the workers drain the queue before the database goes away.
+     */
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        closing = true;
+        if (workers == null) {
+            return;
+        }
+        workers.shutdown();
+        if (!workers.awaitTermination(shutdownTimeout.toMillis(), TimeUnit.MILLISECONDS)) {
+            log.warn("{} queued signups were not committed before shutdown", queue.size());
+            workers.shutdownNow();
+        }
+    }
+
+    private record QueuedSignup(String id, UserDto.SignupRequest request, AuthRequestEvent signup,
+                                AuthStageEvent queued) {
+    }
+}
@@ -0,0 +1,159 @@
+package com.example.user;
+
+import com.example.security.JwtAuthentication;
+import com.example.security.JwtTokenProvider;
+import com.example.security.Role;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.jsonwebtoken.Claims;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.persistence.EntityManager;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.availability.ApplicationAvailability;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs the login, token and serialization paths in a loop before the application reports ready, so that the
+ * first real requests after a deploy find them JIT-compiled instead of paying for it in their latency.
+ *
+ * <p>Application runners finish before Spring Boot moves {@link ApplicationAvailability#getReadinessState()} to
+ * accepting traffic, so {@code /actuator/health/readiness} stays down while this runs. The database part reads a
+ * throwaway user inserted in a transaction that is always rolled back; its id is longer than any id signup
+ * accepts, so it cannot collide with a real account, and {@link UserExistenceFilter} only takes ids whose insert
+ * committed, so it never sees it. A failing warm-up is logged and does not stop startup.
+ */
+@Slf4j
+@Component
+public class StartupWarmUp implements ApplicationRunner {
+
+    private static final String BEARER_PREFIX = "Bearer ";
+
+    private final JwtTokenProvider jwtTokenProvider;
+    private final PasswordEncoder passwordEncoder;
+    private final ObjectMapper objectMapper;
+    private final UserRepository userRepository;
+    private final EntityManager entityManager;
+    private final TransactionTemplate transactionTemplate;
+    private final MeterRegistry meterRegistry;
+    private final boolean enabled;
+    private final int iterations;
+    private final int passwordIterations;
+    private final Duration timeBudget;
+
+    public StartupWarmUp(JwtTokenProvider jwtTokenProvider,
+                         PasswordEncoder passwordEncoder,
+                         ObjectMapper objectMapper,
+                         UserRepository userRepository,
+                         EntityManager entityManager,
+                         TransactionTemplate transactionTemplate,
+                         MeterRegistry meterRegistry,
+                         @Value("${startup.warm-up.enabled:false}") boolean enabled,
+                         @Value("${startup.warm-up.iterations:5000}") int iterations,
+                         @Value("${startup.warm-up.password-iterations:20}") int passwordIterations,
+                         @Value("${startup.warm-up.time-budget:30s}") Duration timeBudget) {
+        this.jwtTokenProvider = jwtTokenProvider;
+        this.passwordEncoder = passwordEncoder;
+        this.objectMapper = objectMapper;
+        this.userRepository = userRepository;
+        this.entityManager = entityManager;
+        this.transactionTemplate = transactionTemplate;
+        this.meterRegistry = meterRegistry;
+        this.enabled = enabled;
+        this.iterations = iterations;
+        this.passwordIterations = passwordIterations;
+        this.timeBudget = timeBudget;
+    }
+
+    @Override
+    public void run(ApplicationArguments args) {
+        if (!enabled) {
+            return;
+        }
+        long startedAt = System.nanoTime();
+        try {
+            int completed = warmUp(startedAt + timeBudget.toNanos());
+            long elapsed = System.nanoTime() - startedAt;
+            Timer.builder("startup.warm-up")
+                    .description("Time spent warming up request paths before reporting ready")
+                    .register(meterRegistry)
+                    .record(elapsed, TimeUnit.NANOSECONDS);
+            log.info("Warm-up ran {} of {} iterations in {} ms", completed, iterations,
+                    TimeUnit.NANOSECONDS.toMillis(elapsed));
+        } catch (RuntimeException e) {
+            log.warn("Warm-up failed after {} ms, continuing startup",
+                    TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startedAt), e);
+        }
+    }
+
+    /**
+     * @return the number of iterations completed before {@code deadline}
+     */
+    private int warmUp(long deadline) {
+        String userId = "warm-up-" + UUID.randomUUID();
+        String password = UUID.randomUUID().toString().substring(0, 20);
+        String passwordHash = passwordEncoder.encode(password);
+
+        Integer completed = transactionTemplate.execute(status -> {
+            status.setRollbackOnly();
+            User user = new User();
+            user.setUserId(userId);
+            user.setPassword(passwordHash);
+            user.setEmail(userId + "@warm-up.invalid");
+            userRepository.saveAndFlush(user);
+
+            int iteration = 0;
+            while (iteration < iterations && System.nanoTime() < deadline) {
+                // Detached each time, so every lookup maps the row into a new entity.
+                entityManager.clear();
+                User found = userRepository.findByUserId(userId).orElseThrow();
+                userRepository.findLoginStateByUserId(userId).orElseThrow();
+                if (iteration < passwordIterations) {
+                    passwordEncoder.matches(password, found.getPassword());
+                }
+                tokens(userId, found.getTokenEpoch(), found.getRoles());
+                serialize(found);
+                iteration++;
+            }
+            return iteration;
+        });
+        return completed;
+    }
+
+    private void tokens(String userId, int tokenEpoch, Set<Role> roles) {
+        String authorization = BEARER_PREFIX + jwtTokenProvider.generateToken(userId, tokenEpoch, roles);
+        Claims claims = jwtTokenProvider.verifyAccessToken(authorization, BEARER_PREFIX.length());
+        new JwtAuthentication(claims).getAuthorities();
+
+        String refreshToken = jwtTokenProvider.generateRefreshToken(userId, UUID.randomUUID().toString(),
+                UUID.randomUUID().toString(), tokenEpoch, roles);
+        jwtTokenProvider.verifyRefreshToken(refreshToken);
+    }
+
+    private void serialize(User user) {
+        List<UserDto.Response> users = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            users.add(new UserDto.Response((long) i, user.getUserId(), user.getEmail(), user.getCreatedAt(),
+                    LocalDateTime.now()));
+        }
+        try {
+            objectMapper.writeValueAsBytes(new UserDto.PageResponse(users, "cursor", "/api/users?cursor=cursor"));
+            objectMapper.writerFor(UserDto.Response.class).writeValueAsBytes(users.get(0));
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -1,36 +1,49 @@
 package com.example.user;
 
+import com.example.security.Role;
+import com.example.security.TokenEpochListener;
 import jakarta.persistence.*;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.Setter;
+import org.hibernate.annotations.ColumnDefault;
 import org.hibernate.annotations.CreationTimestamp;
 import org.hibernate.annotations.UpdateTimestamp;
 
 import java.time.LocalDateTime;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.Set;
 
 @Entity
-@Table(name = "users")
+@Table(name = "users", uniqueConstraints = {
+        @UniqueConstraint(name = User.USER_ID_CONSTRAINT, columnNames = "user_id"),
+        @UniqueConstraint(name = User.EMAIL_CONSTRAINT, columnNames = "email")
+}, indexes = @Index(name = "idx_users_lock", columnList = "account_non_locked, lock_time"))
+@EntityListeners({TokenEpochListener.class, LoginStateCacheListener.class, UserExistenceFilterListener.class})
 @Getter @Setter @NoArgsConstructor
 public class User {
-    
+
+    public static final String USER_ID_CONSTRAINT = "uk_users_user_id";
+    public static final String EMAIL_CONSTRAINT = "uk_users_email";
+
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Long id;
     
-    @Column(nullable = false, unique = true)
+    @Column(nullable = false)
     private String userId;
     
     @Column(nullable = false)
     private String password;
     
-    @Column(nullable = false, unique = true)
+    @Column(nullable = false)
     private String email;
 
     @Column(nullable = false)
     private boolean enabled = true;
 
-    @Column(nullable = false)
+    @Column(name = "account_non_locked", nullable = false)
     private boolean accountNonLocked = true;
 
     @Column(name = "failed_attempt")
@@ -38,6 +51,17 @@ public class User {
 
     @Column(name = "lock_time")
     private LocalDateTime lockTime;
+
+    /** Tokens issued with an older epoch than this are rejected. */
+    @ColumnDefault("0")
+    @Column(name = "token_epoch", nullable = false)
+    private int tokenEpoch = 0;
+
+    /** Copied into issued tokens, so a change only reaches the user's requests through a new token. */
+    @ColumnDefault("'USER'")
+    @Convert(converter = RolesConverter.class)
+    @Column(nullable = false)
+    private Set<Role> roles = Collections.unmodifiableSet(EnumSet.of(Role.USER));
     
     @CreationTimestamp
     @Column(updatable = false)
@@ -46,6 +70,28 @@ public class User {
     @UpdateTimestamp
     private LocalDateTime updatedAt;
 
+    public void setEnabled(boolean enabled) {
+        if (this.enabled && !enabled) {
+            this.tokenEpoch++;
+        }
+        this.enabled = enabled;
+    }
+
+    /**
+     * Replaces the user's roles. Changing the roles of a saved user bumps the token epoch, so tokens carrying the
+     * old roles are revoked and the user must log in again to pick up the new ones.
+     */
+    public void setRoles(Set<Role> roles) {
+        Set<Role> updated = roles.isEmpty() ? EnumSet.noneOf(Role.class) : EnumSet.copyOf(roles);
+        if (updated.equals(this.roles)) {
+            return;
+        }
+        if (this.id != null) {
+            this.tokenEpoch++;
+        }
+        this.roles = Collections.unmodifiableSet(updated);
+    }
+
     public void increaseFailedAttempts() {
         this.failedAttempt++;
     }
@@ -57,6 +103,7 @@ public class User {
     public void lock() {
         this.accountNonLocked = false;
         this.lockTime = LocalDateTime.now();
+        this.tokenEpoch++;
     }
 
     public void unlock() {
@@ -0,0 +1,148 @@
+package com.example.user;
+
+import com.example.security.Role;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * Inserts groups of new users with one commit per group, for {@link UserImportService} and {@link SignupQueue}.
+ *
+ * <p>Each group costs two indexed existence queries and one JDBC batch. Hibernate cannot batch inserts into the
+ * IDENTITY id column, so this bypasses it, and with it the entity listeners: new ids are added to
+ * {@link UserExistenceFilter} here, and absent users are never in {@link LoginStateCache} to begin with.
+ */
+@Slf4j
+@Component
+public class UserBatchWriter {
+
+    enum Outcome {
+        INSERTED(null),
+        DUPLICATE_USER_ID("User ID already exists"),
+        DUPLICATE_EMAIL("Email already exists"),
+        /** Refused by the database for another reason, such as a value too long for its column. */
+        FAILED("User could not be saved");
+
+        /** The message signup returns for the same conflict. */
+        final String reason;
+
+        Outcome(String reason) {
+            this.reason = reason;
+        }
+    }
+
+    record NewUser(String userId, String email, String passwordHash) {
+    }
+
+    private static final String INSERT_SQL = "INSERT INTO users (user_id, password, email, enabled, "
+            + "account_non_locked, failed_attempt, token_epoch, roles, created_at, updated_at) "
+            + "VALUES (:userId, :password, :email, true, true, 0, 0, :roles, :now, :now)";
+    // Two queries rather than one with OR, so that each is served from its unique index.
+    private static final String EXISTING_USER_IDS_SQL = "SELECT user_id FROM users WHERE user_id IN (:values)";
+    private static final String EXISTING_EMAILS_SQL = "SELECT email FROM users WHERE email IN (:values)";
+    private static final String DEFAULT_ROLES = new RolesConverter().convertToDatabaseColumn(Set.of(Role.USER));
+
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final UserExistenceFilter userExistenceFilter;
+
+    public UserBatchWriter(NamedParameterJdbcTemplate jdbcTemplate,
+                           TransactionTemplate transactionTemplate,
+                           UserExistenceFilter userExistenceFilter) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.userExistenceFilter = userExistenceFilter;
+    }
+
+    /**
+     * Inserts every user whose id and email are neither taken nor used by an earlier user in the list, in one
+     * transaction. If a user created concurrently, after the existence check, makes the batch fail, it is rolled
+     * back and the users are inserted one per transaction to find out which ones clash. A user the database refuses
+     * for any other reason comes back {@link Outcome#FAILED} without affecting the others.
+     *
+     * @return one outcome per user, in order
+     */
+    List<Outcome> insert(List<NewUser> users) {
+        if (users.isEmpty()) {
+            return List.of();
+        }
+        try {
+            return transactionTemplate.execute(status -> insertBatch(users));
+        } catch (DataIntegrityViolationException e) {
+            return users.stream().map(this::insertOne).toList();
+        }
+    }
+
+    private List<Outcome> insertBatch(List<NewUser> users) {
+        Set<String> takenUserIds = existing(EXISTING_USER_IDS_SQL, users.stream().map(NewUser::userId).toList());
+        Set<String> takenEmails = existing(EXISTING_EMAILS_SQL, users.stream().map(NewUser::email).toList());
+
+        List<Outcome> outcomes = new ArrayList<>(users.size());
+        List<MapSqlParameterSource> inserts = new ArrayList<>(users.size());
+        LocalDateTime now = LocalDateTime.now();
+        for (NewUser user : users) {
+            if (takenUserIds.contains(user.userId())) {
+                outcomes.add(Outcome.DUPLICATE_USER_ID);
+            } else if (takenEmails.contains(user.email())) {
+                outcomes.add(Outcome.DUPLICATE_EMAIL);
+            } else {
+                // Later users in the list with the same id or email are duplicates of this one.
+                takenUserIds.add(user.userId());
+                takenEmails.add(user.email());
+                inserts.add(parameters(user, now));
+                outcomes.add(Outcome.INSERTED);
+            }
+        }
+
+        jdbcTemplate.batchUpdate(INSERT_SQL, inserts.toArray(MapSqlParameterSource[]::new));
+        for (int i = 0; i < users.size(); i++) {
+            if (outcomes.get(i) == Outcome.INSERTED) {
+                userExistenceFilter.add(users.get(i).userId());
+            }
+        }
+        return outcomes;
+    }
+
+    private Set<String> existing(String sql, List<String> values) {
+        return new HashSet<>(jdbcTemplate.queryForList(sql, new MapSqlParameterSource("values", values), String.class));
+    }
+
+    private Outcome insertOne(NewUser user) {
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                jdbcTemplate.update(INSERT_SQL, parameters(user, LocalDateTime.now()));
+                userExistenceFilter.add(user.userId());
+            });
+            return Outcome.INSERTED;
+        } catch (DataIntegrityViolationException e) {
+            String message = String.valueOf(e.getMostSpecificCause().getMessage()).toLowerCase(Locale.ROOT);
+            if (message.contains(User.USER_ID_CONSTRAINT)) {
+                return Outcome.DUPLICATE_USER_ID;
+            }
+            if (message.contains(User.EMAIL_CONSTRAINT)) {
+                return Outcome.DUPLICATE_EMAIL;
+            }
+            log.warn("Failed to insert user {}: {}", user.userId(), e.getMostSpecificCause().getMessage());
+            return Outcome.FAILED;
+        }
+    }
+
+    private static MapSqlParameterSource parameters(NewUser user, LocalDateTime now) {
+        return new MapSqlParameterSource()
+                .addValue("userId", user.userId())
+                .addValue("password", user.passwordHash())
+                .addValue("email", user.email())
+                .addValue("roles", DEFAULT_ROLES)
+                .addValue("now", now);
+    }
+}
@@ -1,13 +1,20 @@
 package com.example.user;
 
+import io.jsonwebtoken.Claims;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
-import org.springframework.security.authentication.BadCredentialsException;
+import org.springframework.security.core.Authentication;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
 
-import java.util.List;
+import java.io.IOException;
+import java.io.InputStream;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 
 @RestController
 @RequestMapping("/api")
@@ -15,25 +22,103 @@ import java.util.Map;
 public class UserController {
 
     private final UserService userService;
+    private final UserImportService userImportService;
+    private final SignupQueue signupQueue;
 
+    // Signup and login complete on the password hashing pool; the request thread is released while BCrypt runs.
+    // In the asynchronous signup mode the signup is only queued, and the 202 points at its status.
     @PostMapping("/auth/signup")
-    public ResponseEntity<String> signup(@Valid @RequestBody UserDto.SignupRequest request) {
-        userService.signup(request);
-        return ResponseEntity.ok("User registered successfully");
+    public CompletableFuture<ResponseEntity<?>> signup(@Valid @RequestBody UserDto.SignupRequest request) {
+        if (signupQueue.isEnabled()) {
+            UserDto.SignupStatus status = signupQueue.submit(request);
+            return CompletableFuture.completedFuture(ResponseEntity.accepted()
+                    .location(ServletUriComponentsBuilder.fromCurrentRequest()
+                            .path("/{id}").buildAndExpand(status.getId()).toUri())
+                    .header(HttpHeaders.RETRY_AFTER, String.valueOf(signupQueue.getRetryAfterSeconds()))
+                    .body(status));
+        }
+        return userService.signupAsync(request)
+                .<ResponseEntity<?>>thenApply(ignored -> ResponseEntity.ok("User registered successfully"));
     }
 
-    @PostMapping("/auth/login")
-    public ResponseEntity<?> login(@Valid @RequestBody UserDto.LoginRequest request) {
-        try {
-            Map<String, String> token = userService.login(request);
-            return ResponseEntity.ok(token);
-        } catch (BadCredentialsException e) {
-            return ResponseEntity.badRequest().body("Invalid username or password");
+    @GetMapping("/auth/signup/{id}")
+    public ResponseEntity<UserDto.SignupStatus> signupStatus(@PathVariable String id) {
+        UserDto.SignupStatus status = signupQueue.status(id);
+        if (status.getStatus() == UserDto.SignupStatus.Status.PENDING) {
+            return ResponseEntity.ok()
+                    .header(HttpHeaders.RETRY_AFTER, String.valueOf(signupQueue.getRetryAfterSeconds()))
+                    .body(status);
         }
+        return ResponseEntity.ok(status);
+    }
+
+    @PostMapping("/auth/login")
+    public CompletableFuture<ResponseEntity<Map<String, String>>> login(@Valid @RequestBody UserDto.LoginRequest request) {
+        return userService.loginAsync(request).thenApply(ResponseEntity::ok);
+    }
+
+    @PostMapping("/auth/refresh")
+    public ResponseEntity<Map<String, String>> refresh(@Valid @RequestBody UserDto.RefreshRequest request) {
+        return ResponseEntity.ok(userService.refresh(request));
+    }
+
+    @PostMapping("/auth/logout")
+    public ResponseEntity<String> logout(Authentication authentication,
+                                         @RequestBody(required = false) UserDto.LogoutRequest request) {
+        userService.logout((Claims) authentication.getDetails(), request);
+        return ResponseEntity.ok("Logged out successfully");
     }
 
+    @PostMapping("/auth/logout-all")
+    public ResponseEntity<String> logoutEverywhere(Authentication authentication) {
+        userService.logoutEverywhere(authentication.getName());
+        return ResponseEntity.ok("Logged out from all sessions");
+    }
+
+    @GetMapping(value = "/users/export", produces = "application/x-ndjson")
+    public ResponseEntity<StreamingResponseBody> exportUsers() {
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType("application/x-ndjson"))
+                .body(userService::exportUsers);
+    }
+
+    /**
+     * Creates users in bulk from CSV with a header row, or from NDJSON; see {@link UserImportService}. Rejected rows
+     * are listed in the result and do not fail the request.
+     */
+    @PostMapping(value = "/users/import", consumes = {"text/csv", "application/x-ndjson"})
+    public ResponseEntity<UserDto.ImportResult> importUsers(@RequestHeader(HttpHeaders.CONTENT_TYPE) MediaType contentType,
+                                                            InputStream body) throws IOException {
+        UserImportService.Format format = MediaType.APPLICATION_NDJSON.isCompatibleWith(contentType)
+                ? UserImportService.Format.NDJSON : UserImportService.Format.CSV;
+        return ResponseEntity.ok(userImportService.importUsers(body, format));
+    }
+
+    /**
+     * Keyset-paginated when {@code cursor} or {@code limit} is given. Without either, returns the legacy plain
+     * list, which is capped and marked deprecated.
+     */
     @GetMapping("/users")
-    public ResponseEntity<List<UserDto.Response>> getAllUsers() {
-        return ResponseEntity.ok(userService.getAllUsers());
+    @SuppressWarnings("deprecation")
+    public ResponseEntity<?> getUsers(@RequestParam(required = false) String cursor,
+                                      @RequestParam(required = false) Integer limit) {
+        if (cursor == null && limit == null) {
+            return ResponseEntity.ok()
+                    .header("Deprecation", "true")
+                    .header(HttpHeaders.LINK, "<" + ServletUriComponentsBuilder.fromCurrentRequest()
+                            .replaceQueryParam("limit", 20).toUriString() + ">; rel=\"successor-version\"")
+                    .body(userService.getAllUsers());
+        }
+
+        UserDto.PageResponse page = userService.getUsers(cursor, limit);
+        if (page.getNextCursor() == null) {
+            return ResponseEntity.ok(page);
+        }
+        String next = ServletUriComponentsBuilder.fromCurrentRequest()
+                .replaceQueryParam("cursor", page.getNextCursor())
+                .toUriString();
+        return ResponseEntity.ok()
+                .header(HttpHeaders.LINK, "<" + next + ">; rel=\"next\"")
+                .body(new UserDto.PageResponse(page.getUsers(), page.getNextCursor(), next));
     }
 }
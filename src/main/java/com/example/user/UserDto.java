@@ -1,7 +1,9 @@
 package com.example.user;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import jakarta.validation.constraints.Email;
 import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.Pattern;
 import jakarta.validation.constraints.Size;
 import lombok.AllArgsConstructor;
 import lombok.Getter;
@@ -9,6 +11,7 @@ import lombok.NoArgsConstructor;
 import lombok.Setter;
 
 import java.time.LocalDateTime;
+import java.util.List;
 
 public class UserDto {
 
@@ -25,6 +28,7 @@ public class UserDto {
 
         @NotBlank(message = "Email is required")
         @Email(message = "Invalid email format")
+        @Size(max = 255, message = "Email must be at most 255 characters")
         private String email;
     }
 
@@ -38,12 +42,101 @@ public class UserDto {
         private String password;
     }
 
+    @Getter @Setter
+    @NoArgsConstructor @AllArgsConstructor
+    public static class RefreshRequest {
+        @NotBlank(message = "Refresh token is required")
+        private String refreshToken;
+    }
+
+    @Getter @Setter
+    @NoArgsConstructor @AllArgsConstructor
+    public static class LogoutRequest {
+        private String refreshToken;
+    }
+
     @Getter
     @NoArgsConstructor @AllArgsConstructor
     public static class Response {
+        /** Keyset position only; never serialized. */
+        @JsonIgnore
+        private Long id;
         private String userId;
         private String email;
         private LocalDateTime createdAt;
         private LocalDateTime updatedAt;
+
+        public Response(String userId, String email, LocalDateTime createdAt, LocalDateTime updatedAt) {
+            this(null, userId, email, createdAt, updatedAt);
+        }
+    }
+
+    @Getter
+    @AllArgsConstructor
+    public static class PageResponse {
+        private List<Response> users;
+        /** Opaque cursor for the next page, or {@code null} on the last page. */
+        private String nextCursor;
+        /** Link to the next page, or {@code null} on the last page. */
+        private String next;
+    }
+
+    /**
+     * State of a signup accepted by the asynchronous signup mode, served at the URL the 202 response points to.
+     */
+    @Getter
+    @AllArgsConstructor
+    public static class SignupStatus {
+        public enum Status { PENDING, COMPLETED, REJECTED, FAILED }
+
+        private String id;
+        private Status status;
+        /** Why the signup was rejected or failed; {@code null} otherwise. */
+        private String reason;
+    }
+
+    /**
+     * One row of a bulk import: a CSV record under a header naming these fields, or one NDJSON object. Exactly one
+     * of {@code password} and {@code passwordHash} is given; a hash is stored as is.
+     */
+    @Getter @Setter
+    @NoArgsConstructor @AllArgsConstructor
+    public static class ImportRow {
+        @NotBlank(message = "User ID is required")
+        @Size(min = 4, max = 20, message = "User ID must be between 4 and 20 characters")
+        private String userId;
+
+        @NotBlank(message = "Email is required")
+        @Email(message = "Invalid email format")
+        @Size(max = 255, message = "Email must be at most 255 characters")
+        private String email;
+
+        @Size(min = 6, max = 20, message = "Password must be between 6 and 20 characters")
+        private String password;
+
+        @Pattern(regexp = "\\$2[aby]?\\$\\d\\d\\$[./0-9A-Za-z]{53}", message = "Password hash must be a BCrypt hash")
+        private String passwordHash;
+    }
+
+    @Getter
+    @AllArgsConstructor
+    public static class ImportResult {
+        /** Data rows read, including rejected ones. */
+        private long rows;
+        private long imported;
+        /** Rows rejected, of which {@code rejected} lists the first ones by position. */
+        private long rejectedCount;
+        private List<RejectedRow> rejected;
+        private long elapsedMs;
+        private long rowsPerSecond;
+    }
+
+    @Getter
+    @AllArgsConstructor
+    public static class RejectedRow {
+        /** 1-based position among the data rows; a CSV header is not counted. */
+        private long row;
+        private String userId;
+        private String reason;
     }
 }
@@ -0,0 +1,138 @@
+package com.example.user;
+
+import com.example.common.BloomFilter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+/**
+ * Bloom filter over every existing user id, so that logins for ids that were never registered - most of a
+ * credential-stuffing run - are refused without a database round trip.
+ *
+ * <p>The filter is built by a streaming scan once the application is ready and rebuilt periodically, which also
+ * drops deleted users. New users are added by {@link UserExistenceFilterListener} after their insert commits, and
+ * users created on other nodes are picked up by a short incremental sync. Until the first build completes every
+ * id is reported as possibly present.
+ */
+@Slf4j
+@Component
+public class UserExistenceFilter {
+
+    private final UserRepository userRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final boolean enabled;
+    private final long expectedUsers;
+    private final double falsePositiveRate;
+
+    private volatile BloomFilter filter;
+    // Receives additions made while a rebuild is scanning, so they are not lost when the new filter is swapped in.
+    private volatile BloomFilter building;
+    private volatile LocalDateTime lastSync;
+
+    public UserExistenceFilter(UserRepository userRepository,
+                               TransactionTemplate transactionTemplate,
+                               @Value("${users.existence-filter.enabled:false}") boolean enabled,
+                               @Value("${users.existence-filter.expected-users:100000}") long expectedUsers,
+                               @Value("${users.existence-filter.false-positive-rate:0.01}") double falsePositiveRate) {
+        this.userRepository = userRepository;
+        this.transactionTemplate = transactionTemplate;
+        this.enabled = enabled;
+        this.expectedUsers = expectedUsers;
+        this.falsePositiveRate = falsePositiveRate;
+    }
+
+    /**
+     * Returns {@code false} only if no user with this id exists (as of the last build and sync).
+     */
+    public boolean mightExist(String userId) {
+        BloomFilter current = filter;
+        return current == null || current.mightContain(userId);
+    }
+
+    /**
+     * Records a newly inserted user. Inside a transaction the id is added once the insert commits: a rolled-back
+     * insert leaves nothing in the filter, and a rebuild that scanned before the commit cannot lose it.
+     */
+    public void add(String userId) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    put(userId);
+                }
+            });
+        } else {
+            put(userId);
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(initialDelayString = "${users.existence-filter.rebuild-interval-ms:3600000}",
+            fixedDelayString = "${users.existence-filter.rebuild-interval-ms:3600000}")
+    public void rebuild() {
+        if (!enabled) {
+            return;
+        }
+        LocalDateTime startedAt = LocalDateTime.now();
+        long count = userRepository.count();
+        BloomFilter next = new BloomFilter(Math.max(expectedUsers, count * 2), falsePositiveRate);
+        AtomicLong loaded = new AtomicLong();
+        synchronized (this) {
+            building = next;
+        }
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                try (Stream<String> userIds = userRepository.streamAllUserIds()) {
+                    userIds.forEach(userId -> {
+                        next.put(userId);
+                        loaded.incrementAndGet();
+                    });
+                }
+            });
+            synchronized (this) {
+                filter = next;
+            }
+            lastSync = startedAt;
+            log.info("Built user existence filter with {} user ids", loaded.get());
+        } finally {
+            synchronized (this) {
+                building = null;
+            }
+        }
+    }
+
+    /**
+     * Adds users created since the last sync, including those created on other nodes.
+     */
+    @Scheduled(fixedDelayString = "${users.existence-filter.sync-interval-ms:5000}")
+    public void syncNewUsers() {
+        LocalDateTime since = lastSync;
+        if (filter == null || since == null) {
+            return;
+        }
+        LocalDateTime now = LocalDateTime.now();
+        // Overlap the previous window slightly so rows committed just before the last sync are not missed.
+        transactionTemplate.executeWithoutResult(status ->
+                userRepository.findUserIdsCreatedSince(since.minusSeconds(5)).forEach(this::put));
+        lastSync = now;
+    }
+
+    private synchronized void put(String userId) {
+        if (filter != null) {
+            filter.put(userId);
+        }
+        if (building != null) {
+            building.put(userId);
+        }
+    }
+}
@@ -0,0 +1,24 @@
+package com.example.user;
+
+import jakarta.persistence.PostPersist;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.stereotype.Component;
+
+/**
+ * Adds every newly inserted user id to {@link UserExistenceFilter}.
+ */
+@Component
+public class UserExistenceFilterListener {
+
+    // Hibernate creates its own listener instance, so the filter is looked up rather than held directly.
+    private final ObjectProvider<UserExistenceFilter> userExistenceFilter;
+
+    public UserExistenceFilterListener(ObjectProvider<UserExistenceFilter> userExistenceFilter) {
+        this.userExistenceFilter = userExistenceFilter;
+    }
+
+    @PostPersist
+    public void onInsert(User user) {
+        userExistenceFilter.ifAvailable(filter -> filter.add(user.getUserId()));
+    }
+}
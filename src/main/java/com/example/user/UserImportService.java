@@ -0,0 +1,327 @@
+package com.example.user;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.dataformat.csv.CsvMapper;
+import com.fasterxml.jackson.dataformat.csv.CsvParser;
+import com.fasterxml.jackson.dataformat.csv.CsvSchema;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Creates users in bulk from a CSV or NDJSON stream, for onboarding a tenant without one signup per user.
+ *
+ * <p>Rows are read and validated in batches of {@code users.import.batch-size}. While one batch is inserted, the
+ * next one is hashed in parallel on a dedicated {@link ForkJoinPool}; rows that already carry a BCrypt hash skip
+ * hashing. Each batch is written by {@link UserBatchWriter} in its own transaction, so an interrupted import keeps
+ * what it committed and a re-run reports those rows as duplicates.
+ *
+ * <p>Rejected rows - invalid fields, or a user id or email that exists or appeared earlier in the input - are
+ * reported per row and do not stop the run, as are rows the database refuses for another reason. Malformed input
+ * does stop it, since the rows after it cannot be located. The response lists at most
+ * {@code users.import.max-reported-rejections} rejected rows, the first ones by position; the counts cover all.
+ */
+@Slf4j
+@Service
+public class UserImportService {
+
+    public enum Format { CSV, NDJSON }
+
+    private static final long PROGRESS_INTERVAL = 10_000;
+
+    private final Validator validator;
+    private final PasswordEncoder passwordEncoder;
+    private final UserBatchWriter userBatchWriter;
+    private final ObjectReader ndjsonReader;
+    private final ObjectReader csvReader;
+    private final ForkJoinPool hashingPool;
+    private final int batchSize;
+    private final int maxReportedRejections;
+
+    private final Counter importedCounter;
+    private final Counter invalidCounter;
+    private final Counter duplicateUserIdCounter;
+    private final Counter duplicateEmailCounter;
+    private final Counter failedCounter;
+    private final Timer hashTimer;
+    private final Timer insertTimer;
+
+    public UserImportService(Validator validator,
+                             PasswordEncoder passwordEncoder,
+                             UserBatchWriter userBatchWriter,
+                             ObjectMapper objectMapper,
+                             MeterRegistry meterRegistry,
+                             @Value("${users.import.batch-size:500}") int batchSize,
+                             @Value("${users.import.hashing-parallelism:0}") int hashingParallelism,
+                             @Value("${users.import.max-reported-rejections:1000}") int maxReportedRejections) {
+        this.validator = validator;
+        this.passwordEncoder = passwordEncoder;
+        this.userBatchWriter = userBatchWriter;
+        this.batchSize = batchSize;
+        this.maxReportedRejections = maxReportedRejections;
+        // Unknown fields fail the import rather than being dropped, so a misspelled column is noticed at row 1.
+        this.ndjsonReader = objectMapper.readerFor(UserDto.ImportRow.class)
+                .with(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES);
+        this.csvReader = new CsvMapper().enable(CsvParser.Feature.EMPTY_STRING_AS_NULL)
+                .readerFor(UserDto.ImportRow.class)
+                .with(CsvSchema.emptySchema().withHeader());
+
+        int parallelism = hashingParallelism > 0 ? hashingParallelism : Runtime.getRuntime().availableProcessors();
+        this.hashingPool = new ForkJoinPool(parallelism, pool -> {
+            ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+            thread.setName("user-import-" + thread.getPoolIndex());
+            return thread;
+        }, null, false);
+
+        this.importedCounter = rowCounter(meterRegistry, "imported");
+        this.invalidCounter = rowCounter(meterRegistry, "invalid");
+        this.duplicateUserIdCounter = rowCounter(meterRegistry, "duplicate_user_id");
+        this.duplicateEmailCounter = rowCounter(meterRegistry, "duplicate_email");
+        this.failedCounter = rowCounter(meterRegistry, "failed");
+        this.hashTimer = batchTimer(meterRegistry, "hash");
+        this.insertTimer = batchTimer(meterRegistry, "insert");
+    }
+
+    private static Counter rowCounter(MeterRegistry meterRegistry, String outcome) {
+        return Counter.builder("users.import.rows")
+                .description("Rows processed by bulk user imports")
+                .tag("outcome", outcome)
+                .register(meterRegistry);
+    }
+
+    private static Timer batchTimer(MeterRegistry meterRegistry, String stage) {
+        return Timer.builder("users.import.batch")
+                .description("Time spent per bulk import batch")
+                .tag("stage", stage)
+                .register(meterRegistry);
+    }
+
+    /**
+     * Imports every row of {@code input}. CSV input starts with a header row naming the {@link UserDto.ImportRow}
+     * fields it carries, in any order.
+     *
+     * @throws IOException if reading the input fails
+     */
+    public UserDto.ImportResult importUsers(InputStream input, Format format) throws IOException {
+        ImportRun run = new ImportRun(maxReportedRejections);
+        ObjectReader reader = format == Format.CSV ? csvReader : ndjsonReader;
+        try (MappingIterator<UserDto.ImportRow> rows = reader.readValues(input)) {
+            ForkJoinTask<List<PendingUser>> hashing = null;
+            boolean more = true;
+            while (more) {
+                List<PendingUser> batch = new ArrayList<>(batchSize);
+                more = readBatch(rows, batch, run);
+                // Hash this batch while the previous one is inserted.
+                ForkJoinTask<List<PendingUser>> next = hashingPool.submit(() -> hash(batch));
+                if (hashing != null) {
+                    insert(hashing.join(), run);
+                }
+                hashing = next;
+            }
+            insert(hashing.join(), run);
+        }
+
+        long elapsedNanos = System.nanoTime() - run.startedAt;
+        log.info("Imported {} of {} rows in {} ms, {} rejected", run.imported, run.rows,
+                TimeUnit.NANOSECONDS.toMillis(elapsedNanos), run.rejectedCount);
+        return new UserDto.ImportResult(run.rows, run.imported, run.rejectedCount, run.reportedRejections(),
+                TimeUnit.NANOSECONDS.toMillis(elapsedNanos), run.rowsPerSecond(elapsedNanos));
+    }
+
+    /**
+     * Reads up to one batch of valid rows, rejecting invalid ones on the way.
+     *
+     * @return {@code false} once the input is exhausted or malformed
+     */
+    private boolean readBatch(MappingIterator<UserDto.ImportRow> rows, List<PendingUser> batch, ImportRun run)
+            throws IOException {
+        while (batch.size() < batchSize) {
+            UserDto.ImportRow row;
+            try {
+                if (!rows.hasNextValue()) {
+                    return false;
+                }
+                row = rows.nextValue();
+            } catch (JsonProcessingException e) {
+                run.reject(++run.rows, null, "Malformed row, import stopped: " + e.getOriginalMessage(),
+                        invalidCounter);
+                return false;
+            }
+            long number = ++run.rows;
+            String problem = validate(row);
+            if (problem != null) {
+                run.reject(number, row.getUserId(), problem, invalidCounter);
+            } else {
+                batch.add(new PendingUser(number, row));
+            }
+        }
+        return true;
+    }
+
+    private String validate(UserDto.ImportRow row) {
+        Set<ConstraintViolation<UserDto.ImportRow>> violations = validator.validate(row);
+        if (!violations.isEmpty()) {
+            return violations.stream()
+                    .min(Comparator.comparing(violation -> violation.getPropertyPath().toString()))
+                    .orElseThrow()
+                    .getMessage();
+        }
+        if ((row.getPassword() == null) == (row.getPasswordHash() == null)) {
+            return "Exactly one of password and passwordHash is required";
+        }
+        return null;
+    }
+
+    /**
+     * Runs on the hashing pool, so the parallel stream's tasks are spread over that pool's workers.
+     */
+    private List<PendingUser> hash(List<PendingUser> batch) {
+        long startedAt = System.nanoTime();
+        batch.parallelStream().forEach(PendingUser::hash);
+        hashTimer.record(System.nanoTime() - startedAt, TimeUnit.NANOSECONDS);
+        return batch;
+    }
+
+    private void insert(List<PendingUser> batch, ImportRun run) {
+        if (batch.isEmpty()) {
+            return;
+        }
+        long startedAt = System.nanoTime();
+        List<UserBatchWriter.Outcome> outcomes =
+                userBatchWriter.insert(batch.stream().map(PendingUser::toNewUser).toList());
+        insertTimer.record(System.nanoTime() - startedAt, TimeUnit.NANOSECONDS);
+        for (int i = 0; i < batch.size(); i++) {
+            PendingUser user = batch.get(i);
+            switch (outcomes.get(i)) {
+                case INSERTED -> run.imported(importedCounter);
+                case DUPLICATE_USER_ID -> run.reject(user.row(), user.userId(),
+                        UserBatchWriter.Outcome.DUPLICATE_USER_ID.reason, duplicateUserIdCounter);
+                case DUPLICATE_EMAIL -> run.reject(user.row(), user.userId(),
+                        UserBatchWriter.Outcome.DUPLICATE_EMAIL.reason, duplicateEmailCounter);
+                case FAILED -> run.reject(user.row(), user.userId(),
+                        UserBatchWriter.Outcome.FAILED.reason, failedCounter);
+            }
+        }
+        if (run.rows / PROGRESS_INTERVAL != run.lastProgressRows / PROGRESS_INTERVAL) {
+            run.lastProgressRows = run.rows;
+            log.info("Import progress: {} rows read, {} imported, {} rejected, {} rows/s", run.rows, run.imported,
+                    run.rejectedCount, run.rowsPerSecond(System.nanoTime() - run.startedAt));
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        hashingPool.shutdown();
+    }
+
+    /**
+     * A valid row waiting to be inserted. The plain password, if any, is dropped once it is hashed. Hashing happens
+     * on the pool and the result is read after joining its task, which orders the two.
+     */
+    private final class PendingUser {
+
+        private final long row;
+        private final String userId;
+        private final String email;
+        private String password;
+        private String passwordHash;
+
+        PendingUser(long row, UserDto.ImportRow source) {
+            this.row = row;
+            this.userId = source.getUserId();
+            this.email = source.getEmail();
+            this.password = source.getPassword();
+            this.passwordHash = source.getPasswordHash();
+        }
+
+        void hash() {
+            if (password != null) {
+                passwordHash = passwordEncoder.encode(password);
+                password = null;
+            }
+        }
+
+        UserBatchWriter.NewUser toNewUser() {
+            return new UserBatchWriter.NewUser(userId, email, passwordHash);
+        }
+
+        long row() {
+            return row;
+        }
+
+        String userId() {
+            return userId;
+        }
+
+        String email() {
+            return email;
+        }
+    }
+
+    private static final class ImportRun {
+
+        private final long startedAt = System.nanoTime();
+        private final int maxReported;
+        // The first rejections by row, with the last of them on top. Invalid rows are rejected as they are read,
+        // duplicates only when their batch is inserted, so rejections do not arrive in row order.
+        private final PriorityQueue<UserDto.RejectedRow> rejected =
+                new PriorityQueue<>(Comparator.comparingLong(UserDto.RejectedRow::getRow).reversed());
+        private long rows;
+        private long imported;
+        private long rejectedCount;
+        private long lastProgressRows;
+
+        ImportRun(int maxReported) {
+            this.maxReported = maxReported;
+        }
+
+        void reject(long row, String userId, String reason, Counter counter) {
+            rejectedCount++;
+            counter.increment();
+            if (rejected.size() < maxReported) {
+                rejected.add(new UserDto.RejectedRow(row, userId, reason));
+            } else if (maxReported > 0 && row < rejected.peek().getRow()) {
+                rejected.poll();
+                rejected.add(new UserDto.RejectedRow(row, userId, reason));
+            }
+        }
+
+        List<UserDto.RejectedRow> reportedRejections() {
+            List<UserDto.RejectedRow> reported = new ArrayList<>(rejected);
+            reported.sort(Comparator.comparingLong(UserDto.RejectedRow::getRow));
+            return reported;
+        }
+
+        void imported(Counter counter) {
+            imported++;
+            counter.increment();
+        }
+
+        long rowsPerSecond(long elapsedNanos) {
+            return elapsedNanos > 0 ? rows * TimeUnit.SECONDS.toNanos(1) / elapsedNanos : rows;
+        }
+    }
+}
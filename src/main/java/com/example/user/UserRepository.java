@@ -1,11 +1,120 @@
 package com.example.user;
 
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 
+import java.time.LocalDateTime;
+import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 public interface UserRepository extends JpaRepository<User, Long> {
+
+    /** Rows fetched per JDBC round trip by {@link #streamAll()} and {@link #streamAllUserIds()}. */
+    String EXPORT_FETCH_SIZE = "500";
+
     Optional<User> findByUserId(String userId);
+
+    @Query("SELECT new com.example.user.LoginStateCache$LoginState(u.id, u.userId, u.password, u.enabled, "
+            + "u.accountNonLocked, u.failedAttempt, u.lockTime, u.tokenEpoch, u.roles) FROM User u WHERE u.userId = :userId")
+    Optional<LoginStateCache.LoginState> findLoginStateByUserId(@Param("userId") String userId);
     boolean existsByUserId(String userId);
     boolean existsByEmail(String email);
+
+    /**
+     * Keyset page of users with {@code id > afterId}, projected straight into the response type so that no entity
+     * (and no password hash) is loaded into the persistence context.
+     */
+    @Query("SELECT new com.example.user.UserDto$Response(u.id, u.userId, u.email, u.createdAt, u.updatedAt) "
+            + "FROM User u WHERE u.id > :afterId ORDER BY u.id")
+    List<UserDto.Response> findPageAfter(@Param("afterId") long afterId, Pageable pageable);
+
+    /**
+     * Every user in id order, read through a JDBC cursor. Must be consumed inside a transaction and closed.
+     */
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = EXPORT_FETCH_SIZE),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query("SELECT new com.example.user.UserDto$Response(u.id, u.userId, u.email, u.createdAt, u.updatedAt) "
+            + "FROM User u ORDER BY u.id")
+    Stream<UserDto.Response> streamAll();
+
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = EXPORT_FETCH_SIZE))
+    @Query("SELECT u.userId FROM User u")
+    Stream<String> streamAllUserIds();
+
+    @Query("SELECT u.userId FROM User u WHERE u.createdAt >= :since")
+    List<String> findUserIdsCreatedSince(@Param("since") LocalDateTime since);
+
+    /**
+     * Counts a failed attempt unless it would reach the threshold. Returns 0 when the account is locked or this
+     * attempt must lock it, in which case {@link #incrementFailedAttemptsAndLock} applies.
+     */
+    @Modifying
+    @Query("UPDATE User u SET u.failedAttempt = u.failedAttempt + 1, u.updatedAt = :now "
+            + "WHERE u.id = :id AND u.accountNonLocked = true AND u.failedAttempt + 1 < :threshold")
+    int incrementFailedAttempts(@Param("id") Long id, @Param("threshold") int threshold, @Param("now") LocalDateTime now);
+
+    /**
+     * Counts the failed attempt that reaches the threshold and locks the account in the same statement.
+     * Locking also bumps the token epoch so existing tokens stop working.
+     */
+    @Modifying
+    @Query("UPDATE User u SET u.accountNonLocked = false, u.lockTime = :now, u.tokenEpoch = u.tokenEpoch + 1, "
+            + "u.updatedAt = :now, u.failedAttempt = u.failedAttempt + 1 "
+            + "WHERE u.id = :id AND u.accountNonLocked = true AND u.failedAttempt + 1 >= :threshold")
+    int incrementFailedAttemptsAndLock(@Param("id") Long id, @Param("threshold") int threshold, @Param("now") LocalDateTime now);
+
+    @Modifying
+    @Query("UPDATE User u SET u.failedAttempt = 0, u.updatedAt = :now WHERE u.id = :id AND u.failedAttempt <> 0")
+    int resetFailedAttempts(@Param("id") Long id, @Param("now") LocalDateTime now);
+
+    @Modifying
+    @Query("UPDATE User u SET u.accountNonLocked = true, u.lockTime = null, u.failedAttempt = 0, u.updatedAt = :now "
+            + "WHERE u.id = :id AND u.accountNonLocked = false AND u.lockTime <= :lockedBefore")
+    int unlockIfExpired(@Param("id") Long id, @Param("lockedBefore") LocalDateTime lockedBefore, @Param("now") LocalDateTime now);
+
+    /**
+     * Oldest expired locks first, served from the {@code (account_non_locked, lock_time)} index.
+     */
+    @Query("SELECT u.id AS id, u.userId AS userId FROM User u "
+            + "WHERE u.accountNonLocked = false AND u.lockTime <= :lockedBefore ORDER BY u.lockTime")
+    List<LockedUserView> findExpiredLocks(@Param("lockedBefore") LocalDateTime lockedBefore, Pageable pageable);
+
+    @Modifying
+    @Query("UPDATE User u SET u.accountNonLocked = true, u.lockTime = null, u.failedAttempt = 0, u.updatedAt = :now "
+            + "WHERE u.id IN :ids AND u.accountNonLocked = false AND u.lockTime <= :lockedBefore")
+    int unlockExpired(@Param("ids") List<Long> ids, @Param("lockedBefore") LocalDateTime lockedBefore,
+                      @Param("now") LocalDateTime now);
+
+    @Modifying(clearAutomatically = true)
+    @Query("UPDATE User u SET u.tokenEpoch = u.tokenEpoch + 1, u.updatedAt = CURRENT_TIMESTAMP WHERE u.userId = :userId")
+    int incrementTokenEpoch(@Param("userId") String userId);
+
+    @Query("SELECT u.tokenEpoch FROM User u WHERE u.userId = :userId")
+    Optional<Integer> findTokenEpochByUserId(@Param("userId") String userId);
+
+    @Query("SELECT u.userId AS userId, u.tokenEpoch AS tokenEpoch FROM User u WHERE u.tokenEpoch > 0")
+    List<TokenEpochView> findNonZeroTokenEpochs();
+
+    @Query("SELECT u.userId AS userId, u.tokenEpoch AS tokenEpoch FROM User u "
+            + "WHERE u.tokenEpoch > 0 AND u.updatedAt >= :since")
+    List<TokenEpochView> findTokenEpochsUpdatedSince(@Param("since") LocalDateTime since);
+
+    interface LockedUserView {
+        Long getId();
+        String getUserId();
+    }
+
+    interface TokenEpochView {
+        String getUserId();
+        int getTokenEpoch();
+    }
 }
@@ -1,89 +1,408 @@
 package com.example.user;
 
 import com.example.common.ApiException;
-import com.example.security.JwtTokenProvider;
+import com.example.common.QueryStats;
+import com.example.common.ServiceBusyException;
+import com.example.user.AuthMetrics.LoginOutcome;
+import com.example.user.AuthMetrics.LoginStage;
+import com.example.user.AuthMetrics.SignupOutcome;
+import com.example.user.AuthMetrics.SignupStage;
+import com.example.user.LoginStateCache.LoginState;
+import com.example.security.PasswordHashingService;
+import com.example.security.RefreshTokenService;
+import com.example.security.TokenRevocationService;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import io.jsonwebtoken.Claims;
 import lombok.RequiredArgsConstructor;
-import org.springframework.security.authentication.BadCredentialsException;
-import org.springframework.security.crypto.password.PasswordEncoder;
+import org.hibernate.exception.ConstraintViolationException;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.task.TaskExecutionAutoConfiguration;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.StringUtils;
 
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
 import java.time.LocalDateTime;
-
+import java.util.Base64;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.stream.Stream;
 
 @Service
 @RequiredArgsConstructor
 @Transactional(readOnly = true)
 public class UserService {
 
+    private static final int MAX_FAILED_ATTEMPTS = 5;
+    private static final int EXPORT_FLUSH_INTERVAL = 500;
+
     private final UserRepository userRepository;
-    private final PasswordEncoder passwordEncoder;
-    private final JwtTokenProvider jwtTokenProvider;
+    private final PasswordHashingService passwordHashingService;
+    private final RefreshTokenService refreshTokenService;
+    private final TokenRevocationService tokenRevocationService;
+    private final TransactionTemplate transactionTemplate;
+    private final ObjectMapper objectMapper;
+    private final LoginStateCache loginStateCache;
+    private final UserExistenceFilter userExistenceFilter;
+    private final AuthMetrics authMetrics;
+    // Runs what follows a hash, so the hashing pool only hashes; on virtual threads under that profile.
+    @Qualifier(TaskExecutionAutoConfiguration.APPLICATION_TASK_EXECUTOR_BEAN_NAME)
+    private final Executor applicationTaskExecutor;
 
-    @Transactional
+    @Value("${users.lock.duration:24h}")
+    private Duration lockDuration;
+
+    @Value("${users.page.default-limit:20}")
+    private int defaultPageSize;
+
+    @Value("${users.page.max-limit:100}")
+    private int maxPageSize;
+
+    @Value("${users.unpaged-max-results:1000}")
+    private int unpagedMaxResults;
+
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
     public void signup(UserDto.SignupRequest request) {
-        validateSignupRequest(request);
+        await(signupAsync(request));
+    }
+
+    /**
+     * Hashes the password on the hashing pool and inserts the user once the hash is ready, in a single statement,
+     * on the application task executor.
+     * Duplicates are detected by the unique constraints rather than by racy pre-checks.
+     */
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public CompletableFuture<Void> signupAsync(UserDto.SignupRequest request) {
+        AuthRequestEvent signup = authMetrics.startSignup();
+        AuthStageEvent hash = authMetrics.start(SignupStage.HASH);
+        return passwordHashingService.encode(request.getPassword())
+                .thenAcceptAsync(encodedPassword -> {
+                    authMetrics.end(hash);
+                    User user = new User();
+                    user.setUserId(request.getUserId());
+                    user.setPassword(encodedPassword);
+                    user.setEmail(request.getEmail());
 
-        User user = new User();
-        user.setUserId(request.getUserId());
-        user.setPassword(passwordEncoder.encode(request.getPassword()));
-        user.setEmail(request.getEmail());
-        
-        userRepository.save(user);
+                    AuthStageEvent insert = authMetrics.start(SignupStage.INSERT);
+                    try {
+                        transactionTemplate.executeWithoutResult(status -> userRepository.save(user));
+                    } catch (DataIntegrityViolationException e) {
+                        throw translateSignupConflict(e, signup);
+                    } finally {
+                        authMetrics.end(insert);
+                    }
+                    authMetrics.end(signup, SignupOutcome.SUCCESS);
+                }, afterHashExecutor())
+                .whenComplete((ignored, error) -> {
+                    // Conflicts and successes were recorded where they happened.
+                    if (unwrap(error) instanceof ServiceBusyException) {
+                        authMetrics.end(signup, SignupOutcome.BUSY);
+                    } else if (error != null && !(unwrap(error) instanceof ApiException)) {
+                        authMetrics.end(signup, SignupOutcome.ERROR);
+                    }
+                });
     }
 
-    private void validateSignupRequest(UserDto.SignupRequest request) {
-        if (userRepository.existsByUserId(request.getUserId())) {
-            throw ApiException.badRequest("User ID already exists");
+    private RuntimeException translateSignupConflict(DataIntegrityViolationException e, AuthRequestEvent signup) {
+        String violated = violatedConstraint(e).toLowerCase(Locale.ROOT);
+        if (violated.contains(User.USER_ID_CONSTRAINT)) {
+            authMetrics.end(signup, SignupOutcome.DUPLICATE_USER_ID);
+            return ApiException.badRequest("User ID already exists");
         }
-        if (userRepository.existsByEmail(request.getEmail())) {
-            throw ApiException.badRequest("Email already exists");
+        if (violated.contains(User.EMAIL_CONSTRAINT)) {
+            authMetrics.end(signup, SignupOutcome.DUPLICATE_EMAIL);
+            return ApiException.badRequest("Email already exists");
         }
+        return e;
     }
 
+    private static String violatedConstraint(DataIntegrityViolationException e) {
+        for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+            if (cause instanceof ConstraintViolationException violation && violation.getConstraintName() != null) {
+                return violation.getConstraintName();
+            }
+        }
+        return String.valueOf(e.getMostSpecificCause().getMessage());
+    }
+
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
     public Map<String, String> login(UserDto.LoginRequest request) {
-        User user = userRepository.findByUserId(request.getUserId())
-                .orElseThrow(() -> ApiException.unauthorized("Invalid credentials"));
+        return await(loginAsync(request));
+    }
+
+    /**
+     * Checks account state on the calling thread, verifies the password on the hashing pool and records the
+     * outcome in its own transaction once verification completes, on the application task executor.
+     */
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public CompletableFuture<Map<String, String>> loginAsync(UserDto.LoginRequest request) {
+        AuthRequestEvent login = authMetrics.startLogin();
+        AuthStageEvent lookup = authMetrics.start(LoginStage.LOOKUP);
+        LoginState state = loadLoginState(request.getUserId());
+        authMetrics.end(lookup);
+        if (state == null) {
+            // Spend the same BCrypt time as a wrong password so unknown ids cannot be told apart by latency.
+            AuthStageEvent passwordCheck = authMetrics.start(LoginStage.PASSWORD_CHECK);
+            return recordLoginErrors(passwordHashingService.matchesNothing(request.getPassword())
+                    .thenApplyAsync(ignored -> {
+                        authMetrics.end(passwordCheck);
+                        authMetrics.end(login, LoginOutcome.UNKNOWN_USER);
+                        throw ApiException.unauthorized("Invalid credentials");
+                    }, afterHashExecutor()), login);
+        }
+        LoginState user = checkAccountState(state, login);
+
+        AuthStageEvent passwordCheck = authMetrics.start(LoginStage.PASSWORD_CHECK);
+        return recordLoginErrors(passwordHashingService.matches(request.getPassword(), user.password())
+                .thenApplyAsync(matches -> {
+                    authMetrics.end(passwordCheck);
+                    if (!matches) {
+                        // Committed before throwing, so the failed attempt counts even though the login fails.
+                        AuthStageEvent recordFailure = authMetrics.start(LoginStage.RECORD_FAILURE);
+                        FailedLoginOutcome outcome = transactionTemplate.execute(status -> recordFailedAttempt(user));
+                        authMetrics.end(recordFailure);
+                        authMetrics.end(login, outcome == FailedLoginOutcome.COUNTED
+                                ? LoginOutcome.BAD_CREDENTIALS : LoginOutcome.LOCKED);
+                        throw switch (outcome) {
+                            case COUNTED -> ApiException.unauthorized("Invalid credentials");
+                            case LOCKED -> ApiException.unauthorized("Account has been locked due to " + MAX_FAILED_ATTEMPTS
+                                    + " failed attempts. Please try again after " + describe(lockDuration));
+                            case ALREADY_LOCKED -> accountLocked();
+                        };
+                    }
+                    AuthStageEvent tokenIssue = authMetrics.start(LoginStage.TOKEN_ISSUE);
+                    Map<String, String> tokens = transactionTemplate.execute(status -> {
+                        // A user with a clean record costs no write here at all, and neither does one whose lock
+                        // has expired: AccountUnlocker resets the counter together with the lock.
+                        if (user.failedAttempt() != 0 && !user.isAccountLocked()) {
+                            userRepository.resetFailedAttempts(user.id(), LocalDateTime.now());
+                            loginStateCache.invalidate(user.userId());
+                        }
+                        return refreshTokenService.issueTokens(user.userId(), user.tokenEpoch(), user.roles());
+                    });
+                    authMetrics.end(tokenIssue);
+                    authMetrics.end(login, LoginOutcome.SUCCESS);
+                    return tokens;
+                }, afterHashExecutor()), login);
+    }
+
+    // Hashing tasks carry the request's query stats, so the continuation picks them up from the hashing thread.
+    private Executor afterHashExecutor() {
+        return QueryStats.propagating(applicationTaskExecutor);
+    }
 
-        if (!user.isEnabled()) {
+    /**
+     * Records logins that ended without one of the outcomes above: a full hashing queue, or an unexpected error.
+     */
+    private <T> CompletableFuture<T> recordLoginErrors(CompletableFuture<T> result, AuthRequestEvent login) {
+        return result.whenComplete((ignored, error) -> {
+            if (unwrap(error) instanceof ServiceBusyException) {
+                authMetrics.end(login, LoginOutcome.BUSY);
+            } else if (error != null && !(unwrap(error) instanceof ApiException)) {
+                authMetrics.end(login, LoginOutcome.ERROR);
+            }
+        });
+    }
+
+    /**
+     * Only reads: a lock that has run out is treated as lifted here and cleared in the database by
+     * {@link AccountUnlocker}.
+     */
+    private LoginState checkAccountState(LoginState user, AuthRequestEvent login) {
+        if (!user.enabled()) {
+            authMetrics.end(login, LoginOutcome.DISABLED);
             throw ApiException.unauthorized("Account is disabled");
         }
+        if (user.isAccountLocked() && !isLockExpired(user, LocalDateTime.now())) {
+            authMetrics.end(login, LoginOutcome.LOCKED);
+            throw accountLocked();
+        }
+        return user;
+    }
 
+    // A lock without a lock time was not set by failed logins and never expires.
+    private boolean isLockExpired(LoginState user, LocalDateTime now) {
+        return user.lockTime() != null && !user.lockTime().isAfter(now.minus(lockDuration));
+    }
+
+    private ApiException accountLocked() {
+        return ApiException.unauthorized("Account is locked. Please try again after " + describe(lockDuration));
+    }
+
+    private static String describe(Duration duration) {
+        if (duration.toMinutesPart() == 0 && duration.toHours() > 0) {
+            return duration.toHours() + (duration.toHours() == 1 ? " hour" : " hours");
+        }
+        return duration.toMinutes() + (duration.toMinutes() == 1 ? " minute" : " minutes");
+    }
+
+    /**
+     * Reads login state through {@link LoginStateCache}, or returns {@code null} if the user does not exist.
+     * Ids the {@link UserExistenceFilter} has never seen are answered without touching the cache or database.
+     * A cached entry older than the token epoch this node has seen was written before the user was locked,
+     * disabled or logged out elsewhere, so it is reloaded.
+     */
+    private LoginState loadLoginState(String userId) {
+        if (!userExistenceFilter.mightExist(userId)) {
+            return null;
+        }
+        LoginState state = loginStateCache.get(userId, this::findLoginState);
+        if (state != null && state.tokenEpoch() < tokenRevocationService.currentEpoch(userId)) {
+            loginStateCache.invalidate(userId);
+            state = loginStateCache.get(userId, this::findLoginState);
+        }
+        return state;
+    }
+
+    private LoginState findLoginState(String userId) {
+        return transactionTemplate.execute(status -> userRepository.findLoginStateByUserId(userId).orElse(null));
+    }
+
+    /**
+     * Counts a failed attempt with single-statement conditional updates, so concurrent wrong passwords can
+     * neither lose increments nor get past the threshold.
+     */
+    private FailedLoginOutcome recordFailedAttempt(LoginState user) {
+        LocalDateTime now = LocalDateTime.now();
+        // Whichever update below applies changes the cached counters; bulk updates bypass the entity callbacks.
+        loginStateCache.invalidate(user.userId());
         if (user.isAccountLocked()) {
-            if (user.getLockTime().plusHours(24).isAfter(LocalDateTime.now())) {
-                throw ApiException.unauthorized("Account is locked. Please try again after 24 hours");
+            // The lock has expired (checkAccountState let the attempt through) but is not cleared yet; clear it
+            // so this attempt counts as the first of a new series.
+            userRepository.unlockIfExpired(user.id(), now.minus(lockDuration), now);
+        }
+        if (userRepository.incrementFailedAttempts(user.id(), MAX_FAILED_ATTEMPTS, now) == 1) {
+            return FailedLoginOutcome.COUNTED;
+        }
+        if (userRepository.incrementFailedAttemptsAndLock(user.id(), MAX_FAILED_ATTEMPTS, now) == 1) {
+            // Bulk updates bypass the entity listener, so publish the bumped epoch ourselves.
+            userRepository.findTokenEpochByUserId(user.userId())
+                    .ifPresent(epoch -> tokenRevocationService.updateTokenEpoch(user.userId(), epoch));
+            return FailedLoginOutcome.LOCKED;
+        }
+        return FailedLoginOutcome.ALREADY_LOCKED;
+    }
+
+    private enum FailedLoginOutcome { COUNTED, LOCKED, ALREADY_LOCKED }
+
+    // Reuse detection revokes the token family and then throws; that revocation must be committed.
+    @Transactional(noRollbackFor = ApiException.class)
+    public Map<String, String> refresh(UserDto.RefreshRequest request) {
+        return refreshTokenService.refresh(request.getRefreshToken());
+    }
+
+    @Transactional
+    public void logout(Claims accessToken, UserDto.LogoutRequest request) {
+        tokenRevocationService.revokeToken(accessToken.getId(), accessToken.getExpiration());
+        if (request != null && StringUtils.hasText(request.getRefreshToken())) {
+            refreshTokenService.revokeFamily(request.getRefreshToken());
+        }
+    }
+
+    @Transactional
+    public void logoutEverywhere(String userId) {
+        tokenRevocationService.revokeAllTokens(userId);
+        loginStateCache.invalidate(userId);
+    }
+
+    /**
+     * Returns at most {@code users.unpaged-max-results} users.
+     *
+     * @deprecated unbounded listing does not scale; use {@link #getUsers(String, Integer)}
+     */
+    @Deprecated
+    public List<UserDto.Response> getAllUsers() {
+        return userRepository.findPageAfter(0L, PageRequest.ofSize(unpagedMaxResults));
+    }
+
+    /**
+     * Returns one keyset page of users ordered by id. {@code cursor} is the value returned as {@code nextCursor}
+     * by the previous page, or {@code null} for the first page.
+     */
+    public UserDto.PageResponse getUsers(String cursor, Integer limit) {
+        long afterId = cursor == null ? 0L : decodeCursor(cursor);
+        int pageSize = limit == null ? defaultPageSize : Math.max(1, Math.min(limit, maxPageSize));
+
+        // Fetch one extra row to learn whether another page exists without a count query.
+        List<UserDto.Response> rows = userRepository.findPageAfter(afterId, PageRequest.ofSize(pageSize + 1));
+        if (rows.size() <= pageSize) {
+            return new UserDto.PageResponse(rows, null, null);
+        }
+        List<UserDto.Response> page = rows.subList(0, pageSize);
+        return new UserDto.PageResponse(page, encodeCursor(page.get(pageSize - 1).getId()), null);
+    }
+
+    private static String encodeCursor(long id) {
+        return Base64.getUrlEncoder().withoutPadding()
+                .encodeToString(("id:" + id).getBytes(StandardCharsets.US_ASCII));
+    }
+
+    /**
+     * Writes every user to {@code out} as newline-delimited JSON, one object per line, in id order.
+     * Rows are read through a database cursor and written as they arrive, so memory use does not grow with the
+     * table. If the client goes away the write fails, and the cursor and transaction are released on the way out.
+     */
+    public void exportUsers(OutputStream out) throws IOException {
+        ObjectWriter writer = objectMapper.writerFor(UserDto.Response.class)
+                .without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+        // Lines are ended explicitly; without this the generator also puts a space before every value after the first.
+        try (JsonGenerator generator = objectMapper.getFactory().createGenerator(out)
+                .disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET)
+                .setRootValueSeparator(null);
+             Stream<UserDto.Response> users = userRepository.streamAll()) {
+            long written = 0;
+            for (Iterator<UserDto.Response> it = users.iterator(); it.hasNext(); ) {
+                writer.writeValue(generator, it.next());
+                generator.writeRaw('\n');
+                // Send the first row right away, then flush in batches.
+                if (written++ % EXPORT_FLUSH_INTERVAL == 0) {
+                    generator.flush();
+                }
             }
-            user.unlock();
+            generator.flush();
         }
+    }
 
-        if (!passwordEncoder.matches(request.getPassword(), user.getPassword())) {
-            user.increaseFailedAttempts();
-            
-            if (user.getFailedAttempt() >= 5) {
-                user.lock();
-                userRepository.save(user);
-                throw ApiException.unauthorized("Account has been locked due to 5 failed attempts. Please try again after 24 hours");
+    private static long decodeCursor(String cursor) {
+        try {
+            String decoded = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.US_ASCII);
+            if (decoded.startsWith("id:")) {
+                return Long.parseLong(decoded.substring(3));
             }
-            
-            userRepository.save(user);
-            throw ApiException.unauthorized("Invalid credentials");
+        } catch (IllegalArgumentException e) {
+            // fall through
         }
+        throw ApiException.badRequest("Invalid cursor");
+    }
 
-        user.resetFailedAttempts();
-        userRepository.save(user);
-        String token = jwtTokenProvider.generateToken(user.getUserId());
-        return Map.of("token", token);
+    private static Throwable unwrap(Throwable error) {
+        return error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
     }
 
-    public List<UserDto.Response> getAllUsers() {
-        return userRepository.findAll().stream()
-                .map(user -> new UserDto.Response(
-                        user.getUserId(),
-                        user.getEmail(),
-                        user.getCreatedAt(),
-                        user.getUpdatedAt()))
-                .toList();
+    private static <T> T await(CompletableFuture<T> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
     }
 }
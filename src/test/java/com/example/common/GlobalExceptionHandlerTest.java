@@ -11,6 +11,7 @@ import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.web.servlet.MockMvc;
 import org.springframework.web.bind.MethodArgumentNotValidException;
 
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
 
@@ -51,9 +52,11 @@ class GlobalExceptionHandlerTest {
             }
             """;
 
-        mockMvc.perform(post("/api/auth/login")
+        // Unknown users still go through a password check on the hashing pool, so the response is asynchronous.
+        mockMvc.perform(asyncDispatch(mockMvc.perform(post("/api/auth/login")
                 .contentType(MediaType.APPLICATION_JSON)
                 .content(invalidLoginRequest))
+                .andReturn()))
                 .andExpect(status().isUnauthorized())
                 .andExpect(jsonPath("$.status").value(HttpStatus.UNAUTHORIZED.value()))
                 .andExpect(jsonPath("$.message").value("Invalid credentials"));
@@ -71,16 +74,21 @@ class GlobalExceptionHandlerTest {
             """;
 
         // First signup
-        mockMvc.perform(post("/api/auth/signup")
+        mockMvc.perform(asyncDispatch(mockMvc.perform(post("/api/auth/signup")
                 .contentType(MediaType.APPLICATION_JSON)
                 .content(signupRequest))
+                .andReturn()))
                 .andExpect(status().isOk());
 
         // Second signup with same userId
-        mockMvc.perform(post("/api/auth/signup")
+        mockMvc.perform(asyncDispatch(mockMvc.perform(post("/api/auth/signup")
                 .contentType(MediaType.APPLICATION_JSON)
                 .content(signupRequest))
+                .andReturn()))
                 .andExpect(status().isBadRequest())
-                .andExpect(jsonPath("$.message").value("User ID already exists"));
+                .andExpect(jsonPath("$.message").value("User ID already exists"))
+                // The failed insert is the only statement; uniqueness is not pre-checked.
+                .andExpect(header().string("X-Query-Count", "1"))
+                .andExpect(header().string("X-Query-Types", "select=0, insert=1, update=0, delete=0, other=0"));
     }
 }
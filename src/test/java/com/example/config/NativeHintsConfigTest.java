@@ -0,0 +1,38 @@
+package com.example.config;
+
+import com.example.user.LoginStateCache;
+import org.junit.jupiter.api.Test;
+import org.springframework.aot.hint.RuntimeHints;
+import org.springframework.aot.hint.TypeHint;
+import org.springframework.aot.hint.predicate.RuntimeHintsPredicates;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class NativeHintsConfigTest {
+
+    private final RuntimeHints hints = new RuntimeHints();
+
+    NativeHintsConfigTest() {
+        new NativeHintsConfig.Hints().registerHints(hints, getClass().getClassLoader());
+    }
+
+    @Test
+    void registeredTypesExist() {
+        // A jjwt upgrade that moves a class would otherwise only show up as a failure in the native image.
+        hints.reflection().typeHints().map(TypeHint::getType).forEach(type ->
+                assertDoesNotThrow(() -> Class.forName(type.getName()), type.getName()));
+    }
+
+    @Test
+    void coversJjwtLookupsAndLoginStateProjection() throws Exception {
+        assertTrue(RuntimeHintsPredicates.reflection()
+                .onConstructor(Class.forName("io.jsonwebtoken.impl.DefaultJwtParserBuilder").getConstructor())
+                .test(hints));
+        assertTrue(RuntimeHintsPredicates.resource()
+                .forResource("META-INF/services/io.jsonwebtoken.io.Deserializer")
+                .test(hints));
+        assertTrue(RuntimeHintsPredicates.reflection()
+                .onConstructor(LoginStateCache.LoginState.class.getDeclaredConstructors()[0])
+                .test(hints));
+    }
+}
@@ -8,6 +8,7 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.actuate.observability.AutoConfigureObservability;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.http.MediaType;
@@ -15,15 +16,22 @@ import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.test.web.servlet.MockMvc;
 import org.springframework.test.web.servlet.MvcResult;
 
+import java.util.EnumSet;
 import java.util.Map;
 
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 import static org.junit.jupiter.api.Assertions.*;
 
-@SpringBootTest
+// Actuator on the application port, where MockMvc reaches it and the scrape endpoint requires metrics:read.
+@SpringBootTest(properties = "management.server.port=")
 @AutoConfigureMockMvc
+@AutoConfigureObservability(tracing = false)
 public class JwtAuthenticationTest {
 
     @Autowired
@@ -47,6 +55,8 @@ public class JwtAuthenticationTest {
         user.setUserId("testuser");
         user.setPassword(passwordEncoder.encode("password123"));
         user.setEmail("test@example.com");
+        // Admin, so the tests can use the admin-only /api/users as their authenticated endpoint.
+        user.setRoles(EnumSet.of(Role.USER, Role.ADMIN));
         userRepository.save(user);
     }
 
@@ -54,9 +64,10 @@ public class JwtAuthenticationTest {
     void testJwtTokenFlow() throws Exception {
         // Test 1: Generate JWT token
         UserDto.LoginRequest loginRequest = new UserDto.LoginRequest("testuser", "password123");
-        MvcResult loginResult = mockMvc.perform(post("/api/auth/login")
+        MvcResult loginResult = mockMvc.perform(asyncDispatch(mockMvc.perform(post("/api/auth/login")
                 .contentType(MediaType.APPLICATION_JSON)
                 .content(objectMapper.writeValueAsString(loginRequest)))
+                .andReturn()))
                 .andExpect(status().isOk())
                 .andReturn();
 
@@ -69,9 +80,10 @@ public class JwtAuthenticationTest {
                 .andExpect(status().isOk());
 
         // Test 3: Generate new token for same user
-        MvcResult newLoginResult = mockMvc.perform(post("/api/auth/login")
+        MvcResult newLoginResult = mockMvc.perform(asyncDispatch(mockMvc.perform(post("/api/auth/login")
                 .contentType(MediaType.APPLICATION_JSON)
                 .content(objectMapper.writeValueAsString(loginRequest)))
+                .andReturn()))
                 .andExpect(status().isOk())
                 .andReturn();
 
@@ -90,6 +102,84 @@ public class JwtAuthenticationTest {
                 .andExpect(status().isOk());
     }
 
+    @Test
+    void testExportStreamsNdjson() throws Exception {
+        String token = extractToken(mockMvc.perform(asyncDispatch(mockMvc.perform(post("/api/auth/login")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(new UserDto.LoginRequest("testuser", "password123"))))
+                .andReturn()))
+                .andReturn());
+
+        MvcResult exportResult = mockMvc.perform(get("/api/users/export")
+                .header("Authorization", "Bearer " + token))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        mockMvc.perform(asyncDispatch(exportResult))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType("application/x-ndjson"));
+
+        String[] lines = exportResult.getResponse().getContentAsString().split("\n");
+        assertEquals(1, lines.length);
+        assertTrue(lines[0].startsWith("{"), lines[0]);
+        assertEquals("testuser", objectMapper.readTree(lines[0]).get("userId").asText());
+
+        mockMvc.perform(get("/api/users/export"))
+                .andExpect(status().isUnauthorized());
+    }
+
+    @Test
+    void testMetricsAreScrapedInPrometheusFormat() throws Exception {
+        String token = extractToken(mockMvc.perform(asyncDispatch(mockMvc.perform(post("/api/auth/login")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(new UserDto.LoginRequest("testuser", "password123"))))
+                .andReturn()))
+                .andReturn());
+        mockMvc.perform(get("/api/users").header("Authorization", "Bearer " + token))
+                .andExpect(status().isOk());
+        mockMvc.perform(get("/api/users").header("Authorization", "Bearer invalid-token"))
+                .andExpect(status().isUnauthorized());
+
+        mockMvc.perform(get("/actuator/prometheus"))
+                .andExpect(status().isUnauthorized());
+        String scrape = mockMvc.perform(get("/actuator/prometheus").header("Authorization", "Bearer " + token))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+
+        assertTrue(scrape.contains("auth_login_seconds_count{outcome=\"success\""));
+        assertTrue(scrape.contains("auth_login_stage_seconds_bucket{stage=\"password_check\",le="));
+        assertTrue(scrape.contains("auth_login_stage_seconds_count{stage=\"password_check\""));
+        assertTrue(scrape.contains("auth_token_verify_seconds_count{outcome=\"valid\""));
+        assertTrue(scrape.contains("auth_token_verify_seconds_count{outcome=\"invalid\""));
+        assertTrue(scrape.contains("api_errors_total{status=\"401\",type=\"api\""));
+    }
+
+    @Test
+    void testUsersEndpointRequiresAdminRole() throws Exception {
+        User user = new User();
+        user.setUserId("plainuser");
+        user.setPassword(passwordEncoder.encode("password123"));
+        user.setEmail("plain@example.com");
+        userRepository.save(user);
+
+        String token = login("plainuser");
+        mockMvc.perform(get("/api/users").header("Authorization", "Bearer " + token))
+                .andExpect(status().isForbidden())
+                .andExpect(jsonPath("$.message").value("Insufficient permissions"));
+        mockMvc.perform(post("/api/auth/logout-all").header("Authorization", "Bearer " + token))
+                .andExpect(status().isOk());
+
+        // Granting a role revokes the user's tokens; the next login carries the new role.
+        String staleToken = login("plainuser");
+        User promoted = userRepository.findByUserId("plainuser").orElseThrow();
+        promoted.setRoles(EnumSet.of(Role.USER, Role.ADMIN));
+        userRepository.save(promoted);
+
+        mockMvc.perform(get("/api/users").header("Authorization", "Bearer " + staleToken))
+                .andExpect(status().isUnauthorized());
+        mockMvc.perform(get("/api/users").header("Authorization", "Bearer " + login("plainuser")))
+                .andExpect(status().isOk());
+    }
+
     @Test
     void testInvalidToken() throws Exception {
         // Test invalid token format
@@ -105,6 +195,15 @@ public class JwtAuthenticationTest {
                 .andExpect(status().isUnauthorized());
     }
 
+    private String login(String userId) throws Exception {
+        return extractToken(mockMvc.perform(asyncDispatch(mockMvc.perform(post("/api/auth/login")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(new UserDto.LoginRequest(userId, "password123"))))
+                .andReturn()))
+                .andExpect(status().isOk())
+                .andReturn());
+    }
+
     private String extractToken(MvcResult result) throws Exception {
         String content = result.getResponse().getContentAsString();
         Map<String, String> response = objectMapper.readValue(content, Map.class);
@@ -0,0 +1,91 @@
+package com.example.security;
+
+import io.jsonwebtoken.io.Encoders;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.SecureRandom;
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class JwtKeyringTest {
+
+    @TempDir
+    Path tempDir;
+
+    private Path keyringFile;
+    private JwtKeyring keyring;
+    private JwtTokenProvider jwtTokenProvider;
+
+    private final String oldKey = randomKey();
+    private final String newKey = randomKey();
+
+    @BeforeEach
+    void setUp() throws Exception {
+        keyringFile = tempDir.resolve("keyring.properties");
+        Files.writeString(keyringFile, "active-key-id=k1\nkeys.k1=" + oldKey + "\n");
+
+        JwtKeyringProperties properties = new JwtKeyringProperties();
+        properties.setFile(keyringFile.toString());
+
+        VerifiedTokenCache cache = new VerifiedTokenCache(true, 100, Duration.ofMinutes(5));
+        keyring = new JwtKeyring(properties, cache);
+        jwtTokenProvider = new JwtTokenProvider(keyring, cache, Duration.ofMinutes(15), Duration.ofDays(14), true);
+    }
+
+    @Test
+    void tokensValidateAcrossNodesSharingTheKeyring() {
+        JwtKeyringProperties properties = new JwtKeyringProperties();
+        properties.setActiveKeyId("k1");
+        properties.getKeys().put("k1", oldKey);
+        VerifiedTokenCache cache = new VerifiedTokenCache(false, 100, Duration.ofMinutes(5));
+        JwtTokenProvider otherNode = new JwtTokenProvider(new JwtKeyring(properties, cache), cache,
+                Duration.ofMinutes(15), Duration.ofDays(14), true);
+
+        String token = jwtTokenProvider.generateToken("testuser");
+        assertEquals("testuser", otherNode.getUserIdFromToken(token));
+    }
+
+    @Test
+    void rotationKeepsOldTokensValidUntilKeyIsRemoved() throws Exception {
+        String oldToken = jwtTokenProvider.generateToken("testuser");
+
+        // Step 1: distribute the new key as verify-only
+        Files.writeString(keyringFile, "active-key-id=k1\nkeys.k1=" + oldKey + "\nkeys.k2=" + newKey + "\n");
+        keyring.reload();
+        assertEquals("k1", keyring.activeKey().id());
+
+        // Step 2: promote the new key
+        Files.writeString(keyringFile, "active-key-id=k2\nkeys.k1=" + oldKey + "\nkeys.k2=" + newKey + "\n");
+        keyring.reload();
+        String newToken = jwtTokenProvider.generateToken("testuser");
+        assertTrue(jwtTokenProvider.validateToken(oldToken));
+        assertTrue(jwtTokenProvider.validateToken(newToken));
+
+        // Step 3: retire the old key
+        Files.writeString(keyringFile, "active-key-id=k2\nkeys.k2=" + newKey + "\n");
+        keyring.reload();
+        assertFalse(jwtTokenProvider.validateToken(oldToken));
+        assertTrue(jwtTokenProvider.validateToken(newToken));
+    }
+
+    @Test
+    void reloadFailureKeepsCurrentKeys() throws Exception {
+        Files.writeString(keyringFile, "active-key-id=missing\nkeys.k1=" + oldKey + "\n");
+        Files.setLastModifiedTime(keyringFile, java.nio.file.attribute.FileTime.fromMillis(0));
+
+        keyring.reloadIfChanged();
+
+        assertEquals("k1", keyring.activeKey().id());
+    }
+
+    private static String randomKey() {
+        byte[] secret = new byte[32];
+        new SecureRandom().nextBytes(secret);
+        return Encoders.BASE64.encode(secret);
+    }
+}
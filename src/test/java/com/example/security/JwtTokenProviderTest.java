@@ -1,11 +1,28 @@
 package com.example.security;
 
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.ExpiredJwtException;
+import io.jsonwebtoken.JwsHeader;
 import io.jsonwebtoken.JwtException;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.UnsupportedJwtException;
+import io.jsonwebtoken.impl.DefaultClaims;
+import io.jsonwebtoken.security.SignatureException;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.security.core.GrantedAuthority;
 import org.springframework.test.context.ActiveProfiles;
 
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+
 import static org.junit.jupiter.api.Assertions.*;
 
 @SpringBootTest
@@ -15,6 +32,12 @@ class JwtTokenProviderTest {
     @Autowired
     private JwtTokenProvider jwtTokenProvider;
 
+    @Autowired
+    private JwtKeyring keyring;
+
+    @Autowired
+    private VerifiedTokenCache verifiedTokenCache;
+
     @Test
     void generateAndValidateToken() {
         // Generate token
@@ -66,4 +89,135 @@ class JwtTokenProviderTest {
         assertEquals(userId, jwtTokenProvider.getUserIdFromToken(token1));
         assertEquals(userId, jwtTokenProvider.getUserIdFromToken(token2));
     }
+
+    @Test
+    void verifyTokenReturnsClaims() {
+        String token = jwtTokenProvider.generateToken("testuser");
+
+        Claims claims = jwtTokenProvider.verifyToken(token);
+        assertEquals("testuser", claims.getSubject());
+        assertNotNull(claims.getExpiration());
+
+        // Without the compact verifier, a second verification is served from the verified-token cache
+        JwtTokenProvider jjwtOnly = new JwtTokenProvider(keyring, verifiedTokenCache,
+                Duration.ofMinutes(15), Duration.ofDays(14), false);
+        Claims parsed = jjwtOnly.verifyToken(token);
+        assertInstanceOf(DefaultClaims.class, parsed);
+        assertSame(parsed, jjwtOnly.verifyToken(token));
+    }
+
+    @Test
+    void compactVerifierReadsOurTokensLikeJjwt() {
+        VerifiedTokenCache noCache = new VerifiedTokenCache(false, 100, Duration.ofMinutes(5));
+        JwtTokenProvider jjwtOnly = new JwtTokenProvider(keyring, noCache, Duration.ofMinutes(15), Duration.ofDays(14), false);
+        String token = jwtTokenProvider.generateToken("사용자", 7, EnumSet.of(Role.USER, Role.ADMIN));
+
+        Claims compact = jwtTokenProvider.verifyAccessToken("Bearer " + token, "Bearer ".length());
+        Claims parsed = jjwtOnly.verifyToken(token);
+        assertInstanceOf(CompactClaims.class, compact);
+        assertEquals(parsed.getSubject(), compact.getSubject());
+        assertEquals(parsed.getId(), compact.getId());
+        assertEquals(parsed.getExpiration(), compact.getExpiration());
+        assertEquals(parsed.getIssuedAt(), compact.getIssuedAt());
+        assertEquals(7, compact.get(JwtTokenProvider.EPOCH_CLAIM, Integer.class));
+        assertEquals(JwtTokenProvider.roleMask(parsed), JwtTokenProvider.roleMask(compact));
+        assertEquals(new HashMap<>(parsed), new HashMap<>(compact));
+
+        // A tampered signature is rejected outright
+        String tampered = token.substring(0, token.length() - 2) + (token.endsWith("AA") ? "BA" : "AA");
+        assertThrows(SignatureException.class, () -> jwtTokenProvider.verifyToken(tampered));
+    }
+
+    @Test
+    void compactVerifierSharesItsMacsAcrossShortLivedThreads() throws Exception {
+        // One new thread per verification, as with virtual threads, and more at once than the pool holds.
+        List<String> failures = new CopyOnWriteArrayList<>();
+        List<Thread> threads = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            String userId = "user" + i;
+            String token = jwtTokenProvider.generateToken(userId, 0, EnumSet.of(Role.USER));
+            String tampered = token.substring(0, token.length() - 2) + (token.endsWith("AA") ? "BA" : "AA");
+            Thread thread = new Thread(() -> {
+                try {
+                    if (!userId.equals(jwtTokenProvider.verifyAccessToken("Bearer " + token, 7).getSubject())) {
+                        failures.add(userId + ": wrong subject");
+                    }
+                    jwtTokenProvider.verifyAccessToken("Bearer " + tampered, 7);
+                    failures.add(userId + ": tampered token accepted");
+                } catch (SignatureException expected) {
+                    // the tampered token
+                } catch (RuntimeException e) {
+                    failures.add(userId + ": " + e);
+                }
+            });
+            threads.add(thread);
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        assertEquals(List.of(), failures);
+    }
+
+    @Test
+    void tokensOutsideOurFormatFallBackToJjwt() {
+        JwtKeyring.SigningKey signingKey = keyring.activeKey();
+        // Unknown claim: verified by jjwt, which accepts it
+        String extraClaim = Jwts.builder().setHeaderParam(JwsHeader.KEY_ID, signingKey.id())
+                .setSubject("testuser").claim("scope", "all")
+                .setExpiration(new Date(System.currentTimeMillis() + 60_000))
+                .signWith(signingKey.key()).compact();
+        Claims claims = jwtTokenProvider.verifyToken(extraClaim);
+        assertInstanceOf(DefaultClaims.class, claims);
+        assertEquals("all", claims.get("scope"));
+
+        // Expired: jjwt reports it as expired rather than as a bad signature
+        String expired = Jwts.builder().setHeaderParam(JwsHeader.KEY_ID, signingKey.id())
+                .setSubject("testuser").setExpiration(new Date(System.currentTimeMillis() - 60_000))
+                .signWith(signingKey.key()).compact();
+        assertThrows(ExpiredJwtException.class, () -> jwtTokenProvider.verifyToken(expired));
+
+        // Refresh tokens are still refused for API access
+        String refresh = jwtTokenProvider.generateRefreshToken("testuser", "family", "id", 0, Set.of(Role.USER));
+        assertThrows(UnsupportedJwtException.class, () -> jwtTokenProvider.verifyAccessToken(refresh));
+    }
+
+    @Test
+    void rolesAreCarriedAsMaskAndMapToSharedAuthorities() {
+        Claims admin = jwtTokenProvider.verifyToken(
+                jwtTokenProvider.generateToken("admin", 0, EnumSet.of(Role.USER, Role.ADMIN)));
+        Claims user = jwtTokenProvider.verifyToken(jwtTokenProvider.generateToken("testuser"));
+
+        assertEquals(EnumSet.of(Role.USER, Role.ADMIN), Role.fromMask(JwtTokenProvider.roleMask(admin)));
+        assertEquals(EnumSet.of(Role.USER), Role.fromMask(JwtTokenProvider.roleMask(user)));
+
+        JwtAuthentication authentication = new JwtAuthentication(admin);
+        assertEquals(List.of("ROLE_USER", "ROLE_ADMIN", Role.USERS_READ, Role.USERS_IMPORT,
+                        Role.METRICS_READ),
+                authentication.getAuthorities().stream().map(GrantedAuthority::getAuthority).toList());
+        assertSame(authentication.getAuthorities(), new JwtAuthentication(admin).getAuthorities());
+        assertSame(authentication.getAuthorities().get(0), new JwtAuthentication(user).getAuthorities().get(0));
+
+        // Tokens issued before roles existed authorize as a plain user
+        DefaultClaims legacy = new DefaultClaims();
+        legacy.setSubject("testuser");
+        assertEquals(Role.authorities(Role.USER.bit()), new JwtAuthentication(legacy).getAuthorities());
+    }
+
+    @Test
+    void verifiedTokenCacheSkipsExpiredClaims() {
+        VerifiedTokenCache cache = new VerifiedTokenCache(true, 100, Duration.ofMinutes(5));
+
+        Claims expired = new DefaultClaims();
+        expired.setSubject("testuser");
+        expired.setExpiration(new Date(System.currentTimeMillis() - 1000));
+        cache.put("expired-token", expired);
+        assertNull(cache.get("expired-token"));
+
+        Claims valid = new DefaultClaims();
+        valid.setSubject("testuser");
+        valid.setExpiration(new Date(System.currentTimeMillis() + 60_000));
+        cache.put("valid-token", valid);
+        assertSame(valid, cache.get("valid-token"));
+    }
 }
@@ -0,0 +1,59 @@
+package com.example.security;
+
+import com.example.common.ServiceBusyException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CountDownLatch;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PasswordHashingServiceTest {
+
+    @Test
+    void rejectsWorkWhenQueueIsFull() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        PasswordHashingService service = new PasswordHashingService(
+                new BlockingPasswordEncoder(release), meterRegistry, 1, 1, 3);
+
+        try {
+            CompletableFuture<String> running = service.encode("first");
+            CompletableFuture<String> queued = service.encode("second");
+            CompletableFuture<String> rejected = service.encode("third");
+
+            CompletionException exception = assertThrows(CompletionException.class, rejected::join);
+            ServiceBusyException busy = assertInstanceOf(ServiceBusyException.class, exception.getCause());
+            assertEquals(3, busy.getRetryAfterSeconds());
+            assertEquals(1, meterRegistry.get("auth.hashing.rejected").counter().count());
+
+            release.countDown();
+            assertEquals("hashed:first", running.join());
+            assertEquals("hashed:second", queued.join());
+        } finally {
+            release.countDown();
+            service.shutdown();
+        }
+    }
+
+    private record BlockingPasswordEncoder(CountDownLatch release) implements PasswordEncoder {
+
+        @Override
+        public String encode(CharSequence rawPassword) {
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return "hashed:" + rawPassword;
+        }
+
+        @Override
+        public boolean matches(CharSequence rawPassword, String encodedPassword) {
+            return encodedPassword.equals(encode(rawPassword));
+        }
+    }
+}
@@ -0,0 +1,157 @@
+package com.example.security;
+
+import com.example.common.ApiException;
+import com.example.common.ServiceBusyException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.servlet.http.HttpServlet;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.util.StreamUtils;
+import org.springframework.web.servlet.ModelAndView;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RateLimitFilterTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private RateLimitFilter filter;
+
+    @BeforeEach
+    void setUp() {
+        RateLimitProperties.EndpointLimits limits = new RateLimitProperties.EndpointLimits();
+        limits.setPerIp(limit(3));
+        limits.setPerAccount(limit(2));
+        RateLimitProperties properties = new RateLimitProperties();
+        properties.getEndpoints().put("/api/auth/login", limits);
+
+        filter = new RateLimitFilter(properties, meterRegistry, (request, response, handler, ex) -> {
+            response.setStatus(((ApiException) ex).getStatus().value());
+            if (ex instanceof ServiceBusyException busy) {
+                response.setHeader("Retry-After", String.valueOf(busy.getRetryAfterSeconds()));
+            }
+            return new ModelAndView();
+        });
+    }
+
+    @Test
+    void rejectsOverThePerIpLimit() throws Exception {
+        for (int i = 0; i < 3; i++) {
+            assertEquals(200, login("10.0.0.1", "user" + i).getStatus());
+        }
+
+        MockHttpServletResponse rejected = login("10.0.0.1", "other");
+        assertEquals(429, rejected.getStatus());
+        assertEquals("20", rejected.getHeader("Retry-After"));
+        assertEquals(200, login("10.0.0.2", "other").getStatus());
+
+        assertEquals(4, count("admitted"));
+        assertEquals(1, count("rejected"));
+    }
+
+    @Test
+    void encodedPathsShareTheEndpointsLimit() throws Exception {
+        String[] paths = {"/api/api/auth/login", "/api/api/auth/%6Cogin", "/api/api/auth/%6c%6F%67%69%6e",
+                "/api/api/auth/login;x=1"};
+        for (int i = 0; i < 3; i++) {
+            MockHttpServletResponse response = new MockHttpServletResponse();
+            filter.doFilter(request("10.0.0.1", paths[i], "user" + i), response, new MockFilterChain());
+            assertEquals(200, response.getStatus());
+        }
+        MockHttpServletResponse rejected = new MockHttpServletResponse();
+        filter.doFilter(request("10.0.0.1", paths[3], "user3"), rejected, new MockFilterChain());
+        assertEquals(429, rejected.getStatus());
+        assertEquals(1, count("rejected"));
+    }
+
+    @Test
+    void rejectsOverThePerAccountLimitAcrossAddresses() throws Exception {
+        assertEquals(200, login("10.0.0.1", "victim").getStatus());
+        assertEquals(200, login("10.0.0.2", "victim").getStatus());
+        assertEquals(429, login("10.0.0.3", "victim").getStatus());
+        assertEquals(200, login("10.0.0.3", "someone-else").getStatus());
+    }
+
+    @Test
+    void leavesTheBodyReadableAndOtherPathsAlone() throws Exception {
+        AtomicReference<String> body = new AtomicReference<>();
+        MockFilterChain chain = new MockFilterChain(new HttpServlet() {
+            @Override
+            protected void service(HttpServletRequest request, HttpServletResponse response) throws IOException {
+                body.set(StreamUtils.copyToString(request.getInputStream(), StandardCharsets.UTF_8));
+            }
+        });
+        filter.doFilter(request("10.0.0.1", "/api/api/auth/login", "reader"), new MockHttpServletResponse(), chain);
+        assertEquals("{\"userId\":\"reader\",\"password\":\"password123\"}", body.get());
+
+        for (int i = 0; i < 10; i++) {
+            MockHttpServletResponse response = new MockHttpServletResponse();
+            filter.doFilter(request("10.0.0.1", "/api/api/users", "reader"), response, new MockFilterChain());
+            assertEquals(200, response.getStatus());
+        }
+    }
+
+    @Test
+    void refusesBodiesOverTheLimitWithoutBufferingThem() throws Exception {
+        String padding = "x".repeat(5000);
+        MockHttpServletRequest declared = request("10.0.0.1", "/api/api/auth/login", "big" + padding);
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        filter.doFilter(declared, response, new MockFilterChain());
+        assertEquals(413, response.getStatus());
+
+        // Without a Content-Length the read stops once the limit is passed.
+        MockHttpServletRequest chunked = new MockHttpServletRequest("POST", "/api/api/auth/login") {
+            @Override
+            public long getContentLengthLong() {
+                return -1;
+            }
+        };
+        chunked.setContextPath("/api");
+        chunked.setRemoteAddr("10.0.0.1");
+        chunked.setContent(("{\"userId\":\"big\",\"password\":\"" + padding + "\"}")
+                .getBytes(StandardCharsets.UTF_8));
+        response = new MockHttpServletResponse();
+        filter.doFilter(chunked, response, new MockFilterChain());
+        assertEquals(413, response.getStatus());
+        assertTrue(chunked.getInputStream().available() > 0);
+
+        assertEquals(2, count("too_large"));
+        assertEquals(200, login("10.0.0.1", "big").getStatus());
+    }
+
+    private MockHttpServletResponse login(String remoteAddr, String userId) throws Exception {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        filter.doFilter(request(remoteAddr, "/api/api/auth/login", userId), response, new MockFilterChain());
+        return response;
+    }
+
+    private static MockHttpServletRequest request(String remoteAddr, String uri, String userId) {
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", uri);
+        request.setContextPath("/api");
+        request.setRemoteAddr(remoteAddr);
+        request.setContentType("application/json");
+        request.setContent(("{\"userId\":\"" + userId + "\",\"password\":\"password123\"}")
+                .getBytes(StandardCharsets.UTF_8));
+        return request;
+    }
+
+    private static RateLimitProperties.Limit limit(int capacity) {
+        RateLimitProperties.Limit limit = new RateLimitProperties.Limit();
+        limit.setCapacity(capacity);
+        limit.setPeriod(Duration.ofMinutes(1));
+        return limit;
+    }
+
+    private double count(String outcome) {
+        return meterRegistry.get("auth.rate-limit.requests").tag("outcome", outcome).counter().count();
+    }
+}
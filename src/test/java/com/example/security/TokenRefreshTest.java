@@ -16,9 +16,11 @@ import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.web.servlet.MockMvc;
 import org.springframework.test.web.servlet.MvcResult;
 
+import java.util.EnumSet;
 import java.util.Map;
 import java.util.concurrent.TimeUnit;
 
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
@@ -98,24 +100,80 @@ public class TokenRefreshTest {
                 .andExpect(status().isOk());
     }
 
+    @Test
+    void testRefreshTokenRotation() throws Exception {
+        Map<String, String> tokens = login(TEST_USER_ID, TEST_PASSWORD);
+        String refreshToken = tokens.get("refreshToken");
+        assertNotNull(refreshToken);
+
+        // Refresh returns a new pair and the new access token works
+        Map<String, String> refreshed = refresh(refreshToken, 200);
+        assertNotEquals(refreshToken, refreshed.get("refreshToken"));
+        mockMvc.perform(get("/api/users")
+                .header("Authorization", "Bearer " + refreshed.get("token")))
+                .andExpect(status().isOk());
+
+        // The rotated refresh token can be used once more
+        Map<String, String> refreshedAgain = refresh(refreshed.get("refreshToken"), 200);
+        assertNotNull(refreshedAgain.get("token"));
+    }
+
+    @Test
+    void testRefreshTokenReuseRevokesFamily() throws Exception {
+        String refreshToken = login(TEST_USER_ID, TEST_PASSWORD).get("refreshToken");
+        String rotated = refresh(refreshToken, 200).get("refreshToken");
+
+        // Replaying the old token is detected as reuse
+        refresh(refreshToken, 401);
+
+        // ...and the whole family is revoked, including the token issued by the legitimate refresh
+        refresh(rotated, 401);
+    }
+
+    @Test
+    void testTokenTypesAreNotInterchangeable() throws Exception {
+        Map<String, String> tokens = login(TEST_USER_ID, TEST_PASSWORD);
+
+        mockMvc.perform(get("/api/users")
+                .header("Authorization", "Bearer " + tokens.get("refreshToken")))
+                .andExpect(status().isUnauthorized());
+
+        refresh(tokens.get("token"), 401);
+    }
+
+    private Map<String, String> refresh(String refreshToken, int expectedStatus) throws Exception {
+        MvcResult result = mockMvc.perform(post("/api/auth/refresh")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(Map.of("refreshToken", refreshToken))))
+                .andExpect(status().is(expectedStatus))
+                .andReturn();
+
+        return objectMapper.readValue(result.getResponse().getContentAsString(), Map.class);
+    }
+
     private void createTestUser() {
         User user = new User();
         user.setUserId(TEST_USER_ID);
         user.setPassword(passwordEncoder.encode(TEST_PASSWORD));
         user.setEmail("test@example.com");
+        user.setRoles(EnumSet.of(Role.USER, Role.ADMIN));
         userRepository.save(user);
     }
 
     private String loginAndGetToken(String userId, String password) throws Exception {
+        return login(userId, password).get("token");
+    }
+
+    private Map<String, String> login(String userId, String password) throws Exception {
         UserDto.LoginRequest loginRequest = new UserDto.LoginRequest(userId, password);
-        MvcResult result = mockMvc.perform(post("/api/auth/login")
+        MvcResult result = mockMvc.perform(asyncDispatch(mockMvc.perform(post("/api/auth/login")
                 .contentType(MediaType.APPLICATION_JSON)
                 .content(objectMapper.writeValueAsString(loginRequest)))
+                .andReturn()))
                 .andExpect(status().isOk())
                 .andReturn();
 
         String content = result.getResponse().getContentAsString();
-        Map<String, String> response = objectMapper.readValue(content, Map.class);
-        return response.get("token");
+        return objectMapper.readValue(content, Map.class);
     }
 }
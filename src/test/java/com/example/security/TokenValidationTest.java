@@ -15,8 +15,10 @@ import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.web.servlet.MockMvc;
 import org.springframework.test.web.servlet.MvcResult;
 
+import java.util.EnumSet;
 import java.util.Map;
 
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
@@ -107,19 +109,66 @@ public class TokenValidationTest {
                 .andExpect(status().isUnauthorized());
     }
 
+    @Test
+    void testTokenAfterLogout() throws Exception {
+        String token = getValidToken();
+        String otherToken = getValidToken();
+
+        mockMvc.perform(post("/api/auth/logout")
+                .header("Authorization", "Bearer " + token))
+                .andExpect(status().isOk());
+
+        mockMvc.perform(get("/api/users")
+                .header("Authorization", "Bearer " + token))
+                .andExpect(status().isUnauthorized())
+                .andExpect(jsonPath("$.message").value("Token has been revoked"));
+
+        // Other sessions are unaffected
+        mockMvc.perform(get("/api/users")
+                .header("Authorization", "Bearer " + otherToken))
+                .andExpect(status().isOk());
+    }
+
+    @Test
+    void testTokensAfterLogoutEverywhere() throws Exception {
+        String token = getValidToken();
+        String otherToken = getValidToken();
+
+        mockMvc.perform(post("/api/auth/logout-all")
+                .header("Authorization", "Bearer " + token))
+                .andExpect(status().isOk());
+
+        mockMvc.perform(get("/api/users")
+                .header("Authorization", "Bearer " + otherToken))
+                .andExpect(status().isUnauthorized());
+
+        // Tokens issued after the logout carry the new epoch and work again
+        mockMvc.perform(get("/api/users")
+                .header("Authorization", "Bearer " + getValidToken()))
+                .andExpect(status().isOk());
+    }
+
+    @Test
+    void testLogoutRequiresAuthentication() throws Exception {
+        mockMvc.perform(post("/api/auth/logout"))
+                .andExpect(status().isUnauthorized());
+    }
+
     private void createTestUser() {
         User user = new User();
         user.setUserId(TEST_USER_ID);
         user.setPassword(passwordEncoder.encode(TEST_PASSWORD));
         user.setEmail("test@example.com");
+        user.setRoles(EnumSet.of(Role.USER, Role.ADMIN));
         userRepository.save(user);
     }
 
     private String getValidToken() throws Exception {
         UserDto.LoginRequest loginRequest = new UserDto.LoginRequest(TEST_USER_ID, TEST_PASSWORD);
-        MvcResult result = mockMvc.perform(post("/api/auth/login")
+        MvcResult result = mockMvc.perform(asyncDispatch(mockMvc.perform(post("/api/auth/login")
                 .contentType(MediaType.APPLICATION_JSON)
                 .content(objectMapper.writeValueAsString(loginRequest)))
+                .andReturn()))
                 .andExpect(status().isOk())
                 .andReturn();
 
@@ -0,0 +1,236 @@
+package com.example.user;
+
+import com.example.common.ServiceBusyException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest(properties = {
+        "auth.signup.async.enabled=true",
+        "auth.signup.async.workers=1",
+        "auth.signup.async.retry-after-seconds=3"
+})
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+class SignupQueueTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private PasswordEncoder passwordEncoder;
+
+    @Autowired
+    private UserBatchWriter userBatchWriter;
+
+    @Autowired
+    private AuthMetrics authMetrics;
+
+    @BeforeEach
+    void setUp() {
+        userRepository.deleteAll();
+    }
+
+    @Test
+    void signupIsAcceptedAndCompletesInTheBackground() throws Exception {
+        String location = submit("async01", "async01@example.com");
+
+        JsonNode status = awaitResult(location);
+        assertEquals("COMPLETED", status.get("status").asText());
+        assertTrue(status.get("reason").isNull());
+        User user = userRepository.findByUserId("async01").orElseThrow();
+        assertTrue(passwordEncoder.matches("password123", user.getPassword()));
+
+        mockMvc.perform(get("/api/auth/signup/unknown"))
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    void conflictsAreReportedPerSignup() throws Exception {
+        List<String> locations = new ArrayList<>();
+        locations.add(submit("async01", "first@example.com"));
+        locations.add(submit("async01", "second@example.com"));
+        locations.add(submit("async02", "first@example.com"));
+
+        List<String> outcomes = new ArrayList<>();
+        for (String location : locations) {
+            JsonNode status = awaitResult(location);
+            outcomes.add(status.get("status").asText() + ":" + status.get("reason").asText(""));
+        }
+        assertEquals(List.of("COMPLETED:", "REJECTED:User ID already exists", "REJECTED:Email already exists"),
+                outcomes);
+        assertEquals(1, userRepository.count());
+    }
+
+    @Test
+    void usersTheDatabaseRefusesFailAloneAndOverlongEmailsAreNotQueued() throws Exception {
+        String overlong = "a".repeat(250) + "@example.com";
+        List<UserBatchWriter.Outcome> outcomes = userBatchWriter.insert(List.of(
+                new UserBatchWriter.NewUser("batch01", "batch01@example.com", passwordEncoder.encode("password123")),
+                new UserBatchWriter.NewUser("batch02", overlong, passwordEncoder.encode("password123")),
+                new UserBatchWriter.NewUser("batch03", "batch03@example.com", passwordEncoder.encode("password123"))));
+        assertEquals(List.of(UserBatchWriter.Outcome.INSERTED, UserBatchWriter.Outcome.FAILED,
+                UserBatchWriter.Outcome.INSERTED), outcomes);
+        assertEquals(2, userRepository.count());
+
+        mockMvc.perform(post("/api/auth/signup")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(
+                                new UserDto.SignupRequest("async01", "password123", overlong))))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void fullQueueRefusesSignups() throws Exception {
+        CountDownLatch hashing = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        PasswordEncoder blockingEncoder = new PasswordEncoder() {
+            @Override
+            public String encode(CharSequence rawPassword) {
+                hashing.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return passwordEncoder.encode(rawPassword);
+            }
+
+            @Override
+            public boolean matches(CharSequence rawPassword, String encodedPassword) {
+                return passwordEncoder.matches(rawPassword, encodedPassword);
+            }
+        };
+        SignupQueue queue = new SignupQueue(blockingEncoder, userBatchWriter, authMetrics, new SimpleMeterRegistry(),
+                true, 1, 1, 1, Duration.ofMinutes(1), 2, Duration.ofSeconds(30));
+        try {
+            UserDto.SignupStatus first =
+                    queue.submit(new UserDto.SignupRequest("busy001", "password123", "busy001@example.com"));
+            assertTrue(hashing.await(10, TimeUnit.SECONDS));
+            queue.submit(new UserDto.SignupRequest("busy002", "password123", "busy002@example.com"));
+
+            ServiceBusyException busy = assertThrows(ServiceBusyException.class,
+                    () -> queue.submit(new UserDto.SignupRequest("busy003", "password123", "busy003@example.com")));
+            assertEquals(2, busy.getRetryAfterSeconds());
+            assertEquals(UserDto.SignupStatus.Status.PENDING, queue.status(first.getId()).getStatus());
+        } finally {
+            release.countDown();
+            queue.shutdown();
+        }
+        // Shutdown drains what was queued.
+        assertTrue(userRepository.findByUserId("busy002").isPresent());
+        assertFalse(userRepository.findByUserId("busy003").isPresent());
+    }
+
+    @Test
+    void pendingSignupsOutliveAFullStatusCache() throws Exception {
+        CountDownLatch hashing = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        String hash = passwordEncoder.encode("password123");
+        PasswordEncoder encoder = new PasswordEncoder() {
+            @Override
+            public String encode(CharSequence rawPassword) {
+                if ("slow-password".contentEquals(rawPassword)) {
+                    hashing.countDown();
+                    try {
+                        release.await();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+                return hash;
+            }
+
+            @Override
+            public boolean matches(CharSequence rawPassword, String encodedPassword) {
+                return passwordEncoder.matches(rawPassword, encodedPassword);
+            }
+        };
+        // Capacity 1 keeps at most 100 completed statuses; one worker stays stuck on the first signup.
+        SignupQueue queue = new SignupQueue(encoder, userBatchWriter, authMetrics, new SimpleMeterRegistry(),
+                true, 1, 2, 1, Duration.ofMinutes(1), 1, Duration.ofSeconds(30));
+        UserDto.SignupStatus slow =
+                queue.submit(new UserDto.SignupRequest("slow001", "slow-password", "slow001@example.com"));
+        try {
+            assertTrue(hashing.await(10, TimeUnit.SECONDS));
+            List<String> ids = new ArrayList<>();
+            while (ids.size() < 300) {
+                int n = ids.size();
+                try {
+                    ids.add(queue.submit(new UserDto.SignupRequest("fast" + n, "password123",
+                            "fast" + n + "@example.com")).getId());
+                } catch (ServiceBusyException busy) {
+                    Thread.sleep(1);
+                }
+            }
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(30);
+            while (userRepository.count() < 300 && System.nanoTime() < deadline) {
+                Thread.sleep(10);
+            }
+            assertEquals(300, userRepository.count());
+            assertEquals(UserDto.SignupStatus.Status.PENDING, queue.status(slow.getId()).getStatus());
+        } finally {
+            release.countDown();
+            queue.shutdown();
+        }
+        assertEquals(UserDto.SignupStatus.Status.COMPLETED, queue.status(slow.getId()).getStatus());
+    }
+
+    private String submit(String userId, String email) throws Exception {
+        String body = objectMapper.writeValueAsString(new UserDto.SignupRequest(userId, "password123", email));
+        MvcResult result = mockMvc.perform(asyncDispatch(mockMvc.perform(post("/api/auth/signup")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(body))
+                        .andReturn()))
+                .andExpect(status().isAccepted())
+                .andExpect(header().exists("Location"))
+                .andExpect(header().string("Retry-After", "3"))
+                .andExpect(jsonPath("$.status").value("PENDING"))
+                .andReturn();
+        return result.getResponse().getHeader("Location");
+    }
+
+    private JsonNode awaitResult(String location) throws Exception {
+        String path = location.substring(location.indexOf("/api/auth/signup/"));
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(30);
+        while (System.nanoTime() < deadline) {
+            MvcResult result = mockMvc.perform(get(path)).andExpect(status().isOk()).andReturn();
+            JsonNode status = objectMapper.readTree(result.getResponse().getContentAsString());
+            if (!"PENDING".equals(status.get("status").asText())) {
+                return status;
+            }
+            Thread.sleep(50);
+        }
+        return fail("Signup still pending: " + location);
+    }
+}
@@ -0,0 +1,100 @@
+package com.example.user;
+
+import com.example.security.JwtTokenProvider;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.DefaultApplicationArguments;
+import org.springframework.boot.availability.ApplicationAvailability;
+import org.springframework.boot.availability.ReadinessState;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest(properties = {
+        "startup.warm-up.enabled=true",
+        "startup.warm-up.iterations=50",
+        "startup.warm-up.password-iterations=2"
+})
+@ActiveProfiles("test")
+class StartupWarmUpTest {
+
+    @Autowired
+    private StartupWarmUp startupWarmUp;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private ApplicationAvailability applicationAvailability;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private JwtTokenProvider jwtTokenProvider;
+
+    @Autowired
+    private PasswordEncoder passwordEncoder;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private UserExistenceFilter userExistenceFilter;
+
+    @Test
+    void runsBeforeReadinessAndLeavesNoData() {
+        assertEquals(ReadinessState.ACCEPTING_TRAFFIC, applicationAvailability.getReadinessState());
+        assertEquals(1, meterRegistry.get("startup.warm-up").timer().count());
+
+        long users = userRepository.count();
+        startupWarmUp.run(new DefaultApplicationArguments());
+
+        assertEquals(2, meterRegistry.get("startup.warm-up").timer().count());
+        assertEquals(users, userRepository.count());
+        assertTrue(userRepository.findAll().stream().noneMatch(user -> user.getUserId().startsWith("warm-up-")));
+    }
+
+    @Test
+    void throwawayUserStaysOutOfTheExistenceFilter() {
+        // Records the id of the user the warm-up inserts.
+        List<String> inserted = new CopyOnWriteArrayList<>();
+        UserRepository recording = (UserRepository) Proxy.newProxyInstance(getClass().getClassLoader(),
+                new Class<?>[]{UserRepository.class}, (proxy, method, args) -> {
+                    if (method.getName().equals("saveAndFlush")) {
+                        inserted.add(((User) args[0]).getUserId());
+                    }
+                    try {
+                        return method.invoke(userRepository, args);
+                    } catch (InvocationTargetException e) {
+                        throw e.getCause();
+                    }
+                });
+        StartupWarmUp warmUp = new StartupWarmUp(jwtTokenProvider, passwordEncoder, objectMapper, recording,
+                entityManager, transactionTemplate, meterRegistry, true, 5, 1, Duration.ofSeconds(30));
+
+        warmUp.run(new DefaultApplicationArguments());
+
+        assertEquals(1, inserted.size());
+        assertFalse(userExistenceFilter.mightExist(inserted.get(0)));
+        assertFalse(userRepository.findByUserId(inserted.get(0)).isPresent());
+    }
+}
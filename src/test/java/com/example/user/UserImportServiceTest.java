@@ -0,0 +1,208 @@
+package com.example.user;
+
+import com.example.security.JwtTokenProvider;
+import com.example.security.Role;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.validation.Validator;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+import static org.junit.jupiter.api.Assertions.*;
+
+// Small batches, so the tests cross batch boundaries and overlap hashing with inserts.
+@SpringBootTest(properties = {
+        "users.import.batch-size=2",
+        "users.import.max-reported-rejections=5"
+})
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+class UserImportServiceTest {
+
+    @Autowired
+    private UserImportService userImportService;
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private PasswordEncoder passwordEncoder;
+
+    @Autowired
+    private UserExistenceFilter userExistenceFilter;
+
+    @Autowired
+    private JwtTokenProvider jwtTokenProvider;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private Validator validator;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @BeforeEach
+    void setUp() {
+        userRepository.deleteAll();
+        userService.signup(new UserDto.SignupRequest("existing", "password123", "existing@example.com"));
+    }
+
+    @Test
+    void importsValidRowsAndReportsTheRestPerRow() throws Exception {
+        String hash = passwordEncoder.encode("hashed123");
+        String csv = """
+                email,userId,password,passwordHash
+                alice@example.com,alice01,secret123,
+                bob@example.com,bob0001,,%s
+                x@example.com,x,secret123,
+                alice2@example.com,alice01,secret123,
+                other@example.com,existing,secret123,
+                existing@example.com,carol01,secret123,
+                dave@example.com,dave001,secret123,%s
+                "erin@example.com",erin001,"pa,ss""wd",
+                """.formatted(hash, hash);
+        double importedBefore = meterRegistry.get("users.import.rows").tag("outcome", "imported").counter().count();
+
+        UserDto.ImportResult result = importCsv(csv);
+
+        assertEquals(8, result.getRows());
+        assertEquals(3, result.getImported());
+        assertEquals(5, result.getRejectedCount());
+        assertEquals(List.of(
+                "3:User ID must be between 4 and 20 characters",
+                "4:User ID already exists",
+                "5:User ID already exists",
+                "6:Email already exists",
+                "7:Exactly one of password and passwordHash is required"
+        ), result.getRejected().stream().map(row -> row.getRow() + ":" + row.getReason()).toList());
+
+        User alice = userRepository.findByUserId("alice01").orElseThrow();
+        assertEquals("alice@example.com", alice.getEmail());
+        assertTrue(passwordEncoder.matches("secret123", alice.getPassword()));
+        assertEquals(Set.of(Role.USER), alice.getRoles());
+        assertTrue(alice.isEnabled());
+        assertFalse(alice.isAccountLocked());
+        assertNotNull(alice.getCreatedAt());
+        assertEquals(hash, userRepository.findByUserId("bob0001").orElseThrow().getPassword());
+        assertTrue(passwordEncoder.matches("pa,ss\"wd",
+                userRepository.findByUserId("erin001").orElseThrow().getPassword()));
+        assertEquals(4, userRepository.count());
+
+        assertTrue(userExistenceFilter.mightExist("alice01"));
+        assertNotNull(userService.login(new UserDto.LoginRequest("bob0001", "hashed123")).get("token"));
+        assertEquals(importedBefore + 3,
+                meterRegistry.get("users.import.rows").tag("outcome", "imported").counter().count());
+
+        // A re-run imports nothing and counts every row that was imported as a duplicate, listing the first five.
+        UserDto.ImportResult rerun = importCsv(csv);
+        assertEquals(0, rerun.getImported());
+        assertEquals(8, rerun.getRejectedCount());
+        assertEquals(List.of(1L, 2L, 3L, 4L, 5L),
+                rerun.getRejected().stream().map(UserDto.RejectedRow::getRow).toList());
+    }
+
+    @Test
+    void rowsTheDatabaseRefusesAreRejectedWithoutStoppingTheImport() throws Exception {
+        UserBatchWriter refusingBob = new UserBatchWriter(null, null, null) {
+            @Override
+            List<Outcome> insert(List<NewUser> users) {
+                return users.stream()
+                        .map(user -> user.userId().startsWith("bob") ? Outcome.FAILED : Outcome.INSERTED)
+                        .toList();
+            }
+        };
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        UserImportService service = new UserImportService(validator, passwordEncoder, refusingBob, objectMapper,
+                registry, 2, 1, 5);
+        try {
+            String ndjson = """
+                    {"userId":"alice01","email":"alice@example.com","password":"secret123"}
+                    {"userId":"bob0001","email":"bob@example.com","password":"secret123"}
+                    {"userId":"carol01","email":"carol@example.com","password":"secret123"}
+                    """;
+            UserDto.ImportResult result = service.importUsers(
+                    new ByteArrayInputStream(ndjson.getBytes(StandardCharsets.UTF_8)), UserImportService.Format.NDJSON);
+
+            assertEquals(3, result.getRows());
+            assertEquals(2, result.getImported());
+            assertEquals(List.of("2:User could not be saved"),
+                    result.getRejected().stream().map(row -> row.getRow() + ":" + row.getReason()).toList());
+            assertEquals(1, registry.get("users.import.rows").tag("outcome", "failed").counter().count());
+        } finally {
+            service.shutdown();
+        }
+    }
+
+    @Test
+    void malformedInputStopsTheImportAfterCommittedRows() throws Exception {
+        String ndjson = """
+                {"userId":"alice01","email":"alice@example.com","password":"secret123"}
+                {"userId":"bob0001","email":"bob@example.com","password":"secret123"}
+                {"userId":"carol01","email":
+                {"userId":"dave001","email":"dave@example.com","password":"secret123"}
+                """;
+
+        UserDto.ImportResult result = userImportService.importUsers(
+                new ByteArrayInputStream(ndjson.getBytes(StandardCharsets.UTF_8)), UserImportService.Format.NDJSON);
+
+        assertEquals(3, result.getRows());
+        assertEquals(2, result.getImported());
+        assertEquals(1, result.getRejected().size());
+        assertEquals(3, result.getRejected().get(0).getRow());
+        assertTrue(result.getRejected().get(0).getReason().startsWith("Malformed row, import stopped"));
+        assertTrue(userRepository.findByUserId("bob0001").isPresent());
+        assertFalse(userRepository.findByUserId("dave001").isPresent());
+    }
+
+    @Test
+    void importEndpointRequiresImportPermission() throws Exception {
+        String ndjson = "{\"userId\":\"alice01\",\"email\":\"alice@example.com\",\"password\":\"secret123\"}\n";
+
+        mockMvc.perform(post("/api/users/import")
+                        .header("Authorization", "Bearer " + jwtTokenProvider.generateToken("existing"))
+                        .contentType("application/x-ndjson")
+                        .content(ndjson))
+                .andExpect(status().isForbidden());
+
+        String adminToken = jwtTokenProvider.generateToken("admin", 0, EnumSet.of(Role.USER, Role.ADMIN));
+        mockMvc.perform(post("/api/users/import")
+                        .header("Authorization", "Bearer " + adminToken)
+                        .contentType("application/x-ndjson")
+                        .content(ndjson))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.rows").value(1))
+                .andExpect(jsonPath("$.imported").value(1))
+                .andExpect(jsonPath("$.rejected").isEmpty());
+        assertTrue(userRepository.findByUserId("alice01").isPresent());
+    }
+
+    private UserDto.ImportResult importCsv(String csv) throws IOException {
+        return userImportService.importUsers(new ByteArrayInputStream(csv.getBytes(StandardCharsets.UTF_8)),
+                UserImportService.Format.CSV);
+    }
+}
@@ -1,7 +1,16 @@
 package com.example.user;
 
 import com.example.common.ApiException;
+import com.example.common.QueryStats;
 import com.example.security.JwtTokenProvider;
+import com.example.security.Role;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -9,8 +18,25 @@ import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.test.context.ActiveProfiles;
 
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -30,6 +56,18 @@ class UserServiceTest {
     @Autowired
     private JwtTokenProvider jwtTokenProvider;
 
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private UserExistenceFilter userExistenceFilter;
+
+    @Autowired
+    private AccountUnlocker accountUnlocker;
+
     @BeforeEach
     void setUp() {
         userRepository.deleteAll();
@@ -95,6 +133,36 @@ class UserServiceTest {
         assertEquals("Email already exists", exception.getMessage());
     }
 
+    @Test
+    void testConcurrentDuplicateSignupsAreReportedAsConflicts() throws Exception {
+        int signups = 8;
+        ExecutorService executor = Executors.newFixedThreadPool(signups);
+        List<String> outcomes = new ArrayList<>();
+        try {
+            List<Callable<String>> requests = new ArrayList<>();
+            for (int i = 0; i < signups; i++) {
+                UserDto.SignupRequest request = new UserDto.SignupRequest("testuser", "password123", "test" + i + "@example.com");
+                requests.add(() -> {
+                    try {
+                        userService.signup(request);
+                        return "created";
+                    } catch (ApiException e) {
+                        return e.getMessage();
+                    }
+                });
+            }
+            for (Future<String> result : executor.invokeAll(requests)) {
+                outcomes.add(result.get());
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertEquals(1, outcomes.stream().filter("created"::equals).count());
+        assertEquals(signups - 1, outcomes.stream().filter("User ID already exists"::equals).count());
+        assertEquals(1, userRepository.count());
+    }
+
     @Test
     void testLoginSuccess() {
         // Create user
@@ -116,6 +184,25 @@ class UserServiceTest {
         assertTrue(jwtTokenProvider.validateToken(result.get("token")));
     }
 
+    @Test
+    void testDatabaseWorkAfterHashingLeavesTheHashingPool() {
+        // Dependents registered while the hash runs complete on whichever thread ran the final stage.
+        List<String> threads = new ArrayList<>();
+        userService.signupAsync(new UserDto.SignupRequest("testuser", "password123", "test@example.com"))
+                .whenComplete((ignored, error) -> threads.add(Thread.currentThread().getName()))
+                .join();
+        userService.loginAsync(new UserDto.LoginRequest("testuser", "wrongpassword"))
+                .handle((ignored, error) -> threads.add(Thread.currentThread().getName()))
+                .join();
+        userService.loginAsync(new UserDto.LoginRequest("testuser", "password123"))
+                .whenComplete((ignored, error) -> threads.add(Thread.currentThread().getName()))
+                .join();
+
+        assertEquals(3, threads.size());
+        assertTrue(threads.stream().noneMatch(name -> name.startsWith("password-hashing-")), threads.toString());
+        assertEquals(0, userRepository.findByUserId("testuser").orElseThrow().getFailedAttempt());
+    }
+
     @Test
     void testLoginFailureAndAccountLock() {
         // Create user
@@ -149,6 +236,199 @@ class UserServiceTest {
     }
 
     @Test
+    void testConcurrentFailedLoginsLockExactlyAtThreshold() throws Exception {
+        userService.signup(new UserDto.SignupRequest("testuser", "password123", "test@example.com"));
+        UserDto.LoginRequest wrongPasswordRequest = new UserDto.LoginRequest("testuser", "wrongpassword");
+
+        int attempts = 20;
+        ExecutorService executor = Executors.newFixedThreadPool(attempts);
+        List<String> messages = new ArrayList<>();
+        try {
+            List<Callable<String>> logins = new ArrayList<>();
+            for (int i = 0; i < attempts; i++) {
+                logins.add(() -> assertThrows(ApiException.class,
+                        () -> userService.login(wrongPasswordRequest)).getMessage());
+            }
+            for (Future<String> result : executor.invokeAll(logins)) {
+                messages.add(result.get());
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        // No increment is lost and none goes past the threshold
+        User user = userRepository.findByUserId("testuser").orElseThrow();
+        assertTrue(user.isAccountLocked());
+        assertEquals(5, user.getFailedAttempt());
+        assertEquals(4, messages.stream().filter("Invalid credentials"::equals).count());
+        assertEquals(1, messages.stream().filter(m -> m.startsWith("Account has been locked")).count());
+    }
+
+    @Test
+    void testLoginAndSignupTimersAreTaggedByOutcome() {
+        // Meters are shared with the other tests in this context, so compare against counts taken up front.
+        Map<String, Long> before = authTimerCounts();
+
+        userService.signup(new UserDto.SignupRequest("testuser", "password123", "test@example.com"));
+        assertThrows(ApiException.class,
+                () -> userService.signup(new UserDto.SignupRequest("testuser", "password123", "other@example.com")));
+
+        userService.login(new UserDto.LoginRequest("testuser", "password123"));
+        assertThrows(ApiException.class, () -> userService.login(new UserDto.LoginRequest("testuser", "wrong")));
+        assertThrows(ApiException.class, () -> userService.login(new UserDto.LoginRequest("nobody", "wrong")));
+
+        Map<String, Long> after = authTimerCounts();
+        Map<String, Long> expected = Map.ofEntries(
+                Map.entry("auth.signup:success", 1L),
+                Map.entry("auth.signup:duplicate_user_id", 1L),
+                Map.entry("auth.signup.stage:hash", 2L),
+                Map.entry("auth.signup.stage:insert", 2L),
+                Map.entry("auth.login:success", 1L),
+                Map.entry("auth.login:bad_credentials", 1L),
+                Map.entry("auth.login:unknown_user", 1L),
+                Map.entry("auth.login.stage:lookup", 3L),
+                Map.entry("auth.login.stage:password_check", 3L),
+                Map.entry("auth.login.stage:record_failure", 1L),
+                Map.entry("auth.login.stage:token_issue", 1L));
+        after.forEach((key, count) ->
+                assertEquals(expected.getOrDefault(key, 0L), count - before.getOrDefault(key, 0L), key));
+    }
+
+    private Map<String, Long> authTimerCounts() {
+        Map<String, Long> counts = new HashMap<>();
+        for (String name : List.of("auth.login", "auth.login.stage", "auth.signup", "auth.signup.stage")) {
+            meterRegistry.get(name).timers().forEach(timer -> counts.put(
+                    name + ":" + timer.getId().getTags().get(0).getValue(), timer.count()));
+        }
+        return counts;
+    }
+
+    @Test
+    void testSignupAndLoginStayWithinQueryBudget() {
+        QueryStats signup = measureQueries(() ->
+                userService.signup(new UserDto.SignupRequest("testuser", "password123", "test@example.com")));
+        assertEquals(1, signup.count(QueryStats.Kind.INSERT));
+        assertEquals(1, signup.total());
+
+        // Login state lookup, then the refresh token row.
+        QueryStats login = measureQueries(() ->
+                userService.login(new UserDto.LoginRequest("testuser", "password123")));
+        assertEquals(1, login.count(QueryStats.Kind.SELECT));
+        assertEquals(1, login.count(QueryStats.Kind.INSERT));
+        assertEquals(0, login.count(QueryStats.Kind.UPDATE));
+        assertEquals(2, login.total());
+        assertTrue(login.executionNanos() > 0);
+
+        QueryStats cachedLogin = measureQueries(() ->
+                userService.login(new UserDto.LoginRequest("testuser", "password123")));
+        assertEquals(0, cachedLogin.count(QueryStats.Kind.SELECT));
+        assertEquals(1, cachedLogin.total());
+
+        QueryStats unknownUser = measureQueries(() -> assertThrows(ApiException.class,
+                () -> userService.login(new UserDto.LoginRequest("nobody", "password123"))));
+        assertEquals(0, unknownUser.total());
+    }
+
+    private static QueryStats measureQueries(Runnable work) {
+        QueryStats stats = new QueryStats();
+        try (QueryStats.Binding ignored = stats.bind()) {
+            work.run();
+        }
+        return stats;
+    }
+
+    @Test
+    void testLoginEmitsJfrStageEventsWhenEnabled() throws Exception {
+        userService.signup(new UserDto.SignupRequest("testuser", "password123", "test@example.com"));
+
+        Path file = Files.createTempFile("auth", ".jfr");
+        try (Recording recording = new Recording()) {
+            recording.enable("com.example.auth.Request");
+            recording.enable("com.example.auth.Stage");
+            recording.start();
+            userService.login(new UserDto.LoginRequest("testuser", "password123"));
+            recording.stop();
+            recording.dump(file);
+        }
+
+        List<RecordedEvent> events = RecordingFile.readAllEvents(file);
+        Files.delete(file);
+        assertEquals(List.of("lookup", "password_check", "token_issue"), events.stream()
+                .filter(event -> event.getEventType().getName().equals("com.example.auth.Stage"))
+                // Events are written per thread buffer, not in time order.
+                .sorted(Comparator.comparing(RecordedEvent::getStartTime))
+                .map(event -> event.getString("stage"))
+                .toList());
+        RecordedEvent login = events.stream()
+                .filter(event -> event.getEventType().getName().equals("com.example.auth.Request"))
+                .findFirst().orElseThrow();
+        assertEquals("login", login.getString("operation"));
+        assertEquals("success", login.getString("outcome"));
+        assertTrue(login.getDuration().toNanos() > 0);
+    }
+
+    @Test
+    void testExpiredLockIsLiftedOnReadAndClearedBySweep() {
+        userService.signup(new UserDto.SignupRequest("expired", "password123", "expired@example.com"));
+        userService.signup(new UserDto.SignupRequest("locked", "password123", "locked@example.com"));
+        for (String userId : List.of("expired", "locked")) {
+            for (int i = 0; i < 5; i++) {
+                assertThrows(ApiException.class, () -> userService.login(new UserDto.LoginRequest(userId, "wrong")));
+            }
+        }
+        User expired = userRepository.findByUserId("expired").orElseThrow();
+        expired.setLockTime(LocalDateTime.now().minusHours(25));
+        userRepository.save(expired);
+
+        ApiException stillLocked = assertThrows(ApiException.class,
+                () -> userService.login(new UserDto.LoginRequest("locked", "password123")));
+        assertEquals("Account is locked. Please try again after 24 hours", stillLocked.getMessage());
+
+        QueryStats login = measureQueries(() -> userService.login(new UserDto.LoginRequest("expired", "password123")));
+        assertEquals(0, login.count(QueryStats.Kind.UPDATE));
+        assertTrue(userRepository.findByUserId("expired").orElseThrow().isAccountLocked());
+
+        assertEquals(1, accountUnlocker.unlockExpired());
+        User unlocked = userRepository.findByUserId("expired").orElseThrow();
+        assertFalse(unlocked.isAccountLocked());
+        assertNull(unlocked.getLockTime());
+        assertEquals(0, unlocked.getFailedAttempt());
+        assertTrue(userRepository.findByUserId("locked").orElseThrow().isAccountLocked());
+        assertEquals(0, accountUnlocker.unlockExpired());
+    }
+
+    @Test
+    void testFailedLoginAfterLockExpiryStartsANewCount() {
+        userService.signup(new UserDto.SignupRequest("testuser", "password123", "test@example.com"));
+        for (int i = 0; i < 5; i++) {
+            assertThrows(ApiException.class, () -> userService.login(new UserDto.LoginRequest("testuser", "wrong")));
+        }
+        User user = userRepository.findByUserId("testuser").orElseThrow();
+        user.setLockTime(LocalDateTime.now().minusHours(25));
+        userRepository.save(user);
+
+        ApiException exception = assertThrows(ApiException.class,
+                () -> userService.login(new UserDto.LoginRequest("testuser", "wrong")));
+        assertEquals("Invalid credentials", exception.getMessage());
+        User counted = userRepository.findByUserId("testuser").orElseThrow();
+        assertFalse(counted.isAccountLocked());
+        assertEquals(1, counted.getFailedAttempt());
+    }
+
+    @Test
+    void testSuccessfulLoginResetsFailedAttempts() {
+        userService.signup(new UserDto.SignupRequest("testuser", "password123", "test@example.com"));
+
+        assertThrows(ApiException.class,
+                () -> userService.login(new UserDto.LoginRequest("testuser", "wrongpassword")));
+        assertEquals(1, userRepository.findByUserId("testuser").orElseThrow().getFailedAttempt());
+
+        userService.login(new UserDto.LoginRequest("testuser", "password123"));
+        assertEquals(0, userRepository.findByUserId("testuser").orElseThrow().getFailedAttempt());
+    }
+
+    @Test
+    @SuppressWarnings("deprecation")
     void testGetAllUsers() {
         // Create multiple users
         UserDto.SignupRequest request1 = new UserDto.SignupRequest(
@@ -170,4 +450,118 @@ class UserServiceTest {
         assertTrue(users.stream().anyMatch(u -> u.getUserId().equals("user1")));
         assertTrue(users.stream().anyMatch(u -> u.getUserId().equals("user2")));
     }
+
+    @Test
+    void testGetUsersKeysetPagination() {
+        for (int i = 1; i <= 5; i++) {
+            userService.signup(new UserDto.SignupRequest("user" + i, "password123", "user" + i + "@example.com"));
+        }
+
+        UserDto.PageResponse first = userService.getUsers(null, 2);
+        assertEquals(List.of("user1", "user2"), first.getUsers().stream().map(UserDto.Response::getUserId).toList());
+        assertNotNull(first.getNextCursor());
+
+        UserDto.PageResponse second = userService.getUsers(first.getNextCursor(), 2);
+        assertEquals(List.of("user3", "user4"), second.getUsers().stream().map(UserDto.Response::getUserId).toList());
+
+        UserDto.PageResponse last = userService.getUsers(second.getNextCursor(), 2);
+        assertEquals(List.of("user5"), last.getUsers().stream().map(UserDto.Response::getUserId).toList());
+        assertNull(last.getNextCursor());
+
+        ApiException exception = assertThrows(ApiException.class, () -> userService.getUsers("not-a-cursor", 2));
+        assertEquals("Invalid cursor", exception.getMessage());
+    }
+
+    @Test
+    void testExportUsersWritesOneJsonObjectPerLine() throws Exception {
+        for (int i = 1; i <= 3; i++) {
+            userService.signup(new UserDto.SignupRequest("user" + i, "password123", "user" + i + "@example.com"));
+        }
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        userService.exportUsers(out);
+
+        List<String> lines = out.toString(StandardCharsets.UTF_8).lines().toList();
+        assertEquals(3, lines.size());
+        for (int i = 0; i < lines.size(); i++) {
+            assertTrue(lines.get(i).startsWith("{"), lines.get(i));
+            JsonNode row = objectMapper.readTree(lines.get(i));
+            assertEquals("user" + (i + 1), row.get("userId").asText());
+            assertFalse(row.has("password"));
+            assertFalse(row.has("id"));
+        }
+    }
+
+    @Test
+    void testLoginStateCacheIsInvalidatedOnWrites() {
+        userService.signup(new UserDto.SignupRequest("cached", "password123", "cached@example.com"));
+        double hitsBefore = cacheHits();
+
+        userService.login(new UserDto.LoginRequest("cached", "password123"));
+        userService.login(new UserDto.LoginRequest("cached", "password123"));
+        assertTrue(cacheHits() > hitsBefore);
+
+        // Entity update: caught by the JPA callback
+        User user = userRepository.findByUserId("cached").orElseThrow();
+        user.setEnabled(false);
+        userRepository.save(user);
+        ApiException disabled = assertThrows(ApiException.class,
+                () -> userService.login(new UserDto.LoginRequest("cached", "password123")));
+        assertEquals("Account is disabled", disabled.getMessage());
+
+        user = userRepository.findByUserId("cached").orElseThrow();
+        user.setEnabled(true);
+        userRepository.save(user);
+
+        // Bulk update: invalidated by the service, so the next success sees the count and resets it
+        assertThrows(ApiException.class, () -> userService.login(new UserDto.LoginRequest("cached", "wrong")));
+        assertEquals(1, userRepository.findByUserId("cached").orElseThrow().getFailedAttempt());
+        userService.login(new UserDto.LoginRequest("cached", "password123"));
+        assertEquals(0, userRepository.findByUserId("cached").orElseThrow().getFailedAttempt());
+    }
+
+    @Test
+    void testLoginStateCacheOnlyDropsLoadsOverlappingTheirOwnUsersInvalidation() {
+        LoginStateCache cache = new LoginStateCache(new SimpleMeterRegistry(), true, 100, Duration.ofMinutes(1));
+        AtomicInteger loads = new AtomicInteger();
+        Function<String, LoginStateCache.LoginState> loader = userId -> {
+            loads.incrementAndGet();
+            // Concurrent failed logins invalidate other users while this load runs.
+            cache.invalidate(userId.equals("alice") ? "bob" : userId);
+            return new LoginStateCache.LoginState(1L, userId, "hash", true, true, 0, null, 0, Set.of(Role.USER));
+        };
+
+        cache.get("alice", loader);
+        cache.get("alice", loader);
+        assertEquals(1, loads.get());
+
+        cache.get("bob", loader);
+        cache.get("bob", loader);
+        assertEquals(3, loads.get());
+    }
+
+    private double cacheHits() {
+        return meterRegistry.get("cache.gets").tag("cache", "users.login-state").tag("result", "hit")
+                .functionCounter().count();
+    }
+
+    @Test
+    void testExistenceFilterAnswersUnknownUsersAndTracksInserts() {
+        userExistenceFilter.rebuild();
+        assertFalse(userExistenceFilter.mightExist("nobody"));
+
+        ApiException exception = assertThrows(ApiException.class,
+                () -> userService.login(new UserDto.LoginRequest("nobody", "password123")));
+        assertEquals("Invalid credentials", exception.getMessage());
+
+        // Inserted outside UserService: picked up by the entity listener
+        User user = new User();
+        user.setUserId("nobody");
+        user.setPassword(passwordEncoder.encode("password123"));
+        user.setEmail("nobody@example.com");
+        userRepository.save(user);
+
+        assertTrue(userExistenceFilter.mightExist("nobody"));
+        assertNotNull(userService.login(new UserDto.LoginRequest("nobody", "password123")).get("token"));
+    }
 }